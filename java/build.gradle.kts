@@ -2,13 +2,19 @@ plugins {
 	java
 	id("org.springframework.boot") version "3.1.4"
 	id("io.spring.dependency-management") version "1.1.3"
+	id("me.champeau.jmh") version "0.7.1"
 }
 
+apply(plugin = "org.springframework.boot.aot")
+
 group = "dev.agaber.sports.stats"
 version = "0.0.1-SNAPSHOT"
 
 java {
-	sourceCompatibility = JavaVersion.VERSION_17
+	toolchain {
+		// Virtual threads need Java 21.
+		languageVersion.set(JavaLanguageVersion.of(21))
+	}
 }
 
 configurations {
@@ -28,6 +34,7 @@ dependencies {
   implementation("com.fasterxml.jackson.datatype:jackson-datatype-guava:2.15.2")
   implementation("com.google.guava:guava:32.1.2-jre")
   implementation("org.apache.commons:commons-csv:1.10.0")
+  implementation("org.springframework.boot:spring-boot-starter-actuator")
   implementation("org.springframework.boot:spring-boot-starter-webflux")
   testImplementation("com.github.tomakehurst:wiremock-jre8-standalone:2.35.0")
   testImplementation("io.projectreactor:reactor-test")
@@ -41,3 +48,60 @@ dependencies {
 tasks.withType<Test> {
 	useJUnitPlatform()
 }
+
+jmh {
+	// Benchmarks read the same statsapi fixtures as the unit tests.
+	includeTests.set(true)
+	profilers.add("gc")
+	// Run a subset with e.g. -PjmhIncludes=ExecutionModeBenchmark.
+	providers.gradleProperty("jmhIncludes").orNull?.let { includes.add(it) }
+}
+
+tasks.named<org.springframework.boot.gradle.tasks.aot.ProcessAot>("processAot") {
+	// The AOT-processed context is only used by the fast-start command line profile.
+	args("--spring.profiles.active=fast")
+}
+
+// Fast start: the application unpacked into plain jars, so that class data sharing can archive
+// application classes. CDS cannot archive classes loaded from inside the Boot fat jar.
+val fastStartDir = layout.buildDirectory.dir("fast-start")
+
+val aotJar by tasks.registering(Jar::class) {
+	archiveClassifier.set("aot")
+	from(sourceSets["aot"].output)
+}
+
+val fastStartLibs by tasks.registering(Sync::class) {
+	from(tasks.jar)
+	from(aotJar)
+	from(configurations.runtimeClasspath)
+	into(fastStartDir.map { it.dir("lib") })
+}
+
+val cdsArchive by tasks.registering(JavaExec::class) {
+	description = "Creates an AppCDS archive from a training run against the local stub."
+	dependsOn(fastStartLibs)
+	classpath = sourceSets["jmh"].runtimeClasspath
+	mainClass.set("dev.agaber.sports.StartupBenchmark")
+	args("train", fastStartDir.get().dir("lib"), fastStartDir.get().file("app.jsa"))
+	outputs.file(fastStartDir.map { it.file("app.jsa") })
+}
+
+tasks.register<JavaExec>("startupBenchmark") {
+	description = "Reports time to first output for each startup mode against the local stub."
+	dependsOn(cdsArchive)
+	classpath = sourceSets["jmh"].runtimeClasspath
+	mainClass.set("dev.agaber.sports.StartupBenchmark")
+	args(
+		"benchmark",
+		fastStartDir.get().dir("lib"),
+		fastStartDir.get().file("app.jsa"),
+		providers.gradleProperty("startupIterations").getOrElse("10"))
+}
+
+tasks.register<JavaExec>("loadTest") {
+	description = "Drives roster lookups against a stub with injected latency and reports on the pool."
+	classpath = sourceSets["jmh"].runtimeClasspath
+	mainClass.set("dev.agaber.sports.LoadTest")
+	args(providers.gradleProperty("loadTestArgs").getOrElse("").split(" ").filter { it.isNotBlank() })
+}
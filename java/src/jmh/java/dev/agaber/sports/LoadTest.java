@@ -0,0 +1,269 @@
+package dev.agaber.sports;
+
+import com.google.common.collect.ImmutableMap;
+import dev.agaber.sports.baseball.BaseballTeamService;
+import dev.agaber.sports.testing.StatsApiStub;
+import dev.agaber.sports.testing.StatsApiStub.LatencyDistribution;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Drives {@link BaseballTeamService#execute()} against a {@link StatsApiStub} with injected
+ * latency and errors, to size the WebClient connection pool from data rather than guesses.
+ *
+ * <p>Load is either open loop, {@code --load.rate} lookups per second whatever the response
+ * times, or closed loop, {@code --load.concurrency} lookups in flight at all times. Latency is
+ * measured from when each lookup was due, so a saturated pool shows up in the percentiles instead
+ * of silently lowering the offered rate. Options:
+ *
+ * <ul>
+ *   <li>{@code --load.rate} or {@code --load.concurrency} (default concurrency 32)
+ *   <li>{@code --load.duration} and {@code --load.warmup} (default 30s and 5s)
+ *   <li>{@code --load.latency}: see {@link LatencyDistribution#parse(String)} (default
+ *       {@code lognormal:20ms:200ms})
+ *   <li>{@code --load.errorRate}: fraction of stub responses that are 503s (default 0)
+ * </ul>
+ *
+ * <p>Every other argument goes to the application, e.g. {@code --http-client.maxConnections=32}.
+ * The response caches, request coalescing, the concurrency limit and the rate limit are off by
+ * default so that every lookup reaches the pool as soon as it is made. Run with
+ * {@code ./gradlew loadTest -PloadTestArgs="--load.rate=500"}.
+ */
+public final class LoadTest {
+  private static final String POOL_METRICS = "reactor.netty.connection.provider";
+  private static final String ACTIVE = POOL_METRICS + ".active.connections";
+  private static final String PENDING = POOL_METRICS + ".pending.connections";
+  private static final String PENDING_TIME = POOL_METRICS + ".pending.connections.time";
+
+  private final BaseballTeamService service;
+  private final Histogram latencies = new ConcurrentHistogram(3);
+  private final AtomicLong succeeded = new AtomicLong();
+  private final AtomicLong notFound = new AtomicLong();
+  private final Map<String, AtomicLong> failures = new ConcurrentHashMap<>();
+  private final LongAccumulator maxPending = new LongAccumulator(Math::max, 0);
+  private final LongAccumulator maxActive = new LongAccumulator(Math::max, 0);
+
+  private LoadTest(BaseballTeamService service) {
+    this.service = service;
+  }
+
+  public static void main(String[] args) {
+    var options = new SimpleCommandLinePropertySource(args);
+    var duration = duration(options, "load.duration", "30s");
+    var warmup = duration(options, "load.warmup", "5s");
+    var rate = options.getProperty("load.rate");
+    var concurrency = Integer.parseInt(property(options, "load.concurrency", "32"));
+    var stubOptions = StatsApiStub.Options.builder()
+        .latency(LatencyDistribution.parse(
+            property(options, "load.latency", "lognormal:20ms:200ms")))
+        .errorRate(Double.parseDouble(property(options, "load.errorRate", "0")))
+        .build();
+
+    // Reactor Netty publishes its pool metrics to the global registry.
+    Metrics.addRegistry(new SimpleMeterRegistry());
+    try (var stub = StatsApiStub.start(stubOptions)) {
+      var overrides = ImmutableMap.<String, String>builder()
+          .put("baseball.statsApiUrl", stub.baseUrl())
+          .put("baseball.team", "137")
+          .put("http-client.cacheMaxSize", "0")
+          .put("http-client.coalesce", "false")
+          .put("http-client.concurrencyLimit", "false")
+          .put("http-client.metrics", "true")
+          .put("http-client.rateLimit", "false")
+          .put("isTest", "true")
+          .put("spring.profiles.active", "nologs")
+          .build();
+      var appArgs = new ArrayList<String>();
+      overrides.forEach((name, value) -> {
+        if (!options.containsProperty(name)) {
+          appArgs.add("--" + name + "=" + value);
+        }
+      });
+      for (var arg : args) {
+        if (!arg.startsWith("--load.")) {
+          appArgs.add(arg);
+        }
+      }
+
+      try (var context = new SpringApplicationBuilder(Application.class)
+          .run(appArgs.toArray(String[]::new))) {
+        var loadTest = new LoadTest(context.getBean(BaseballTeamService.class));
+        var load = rate == null
+            ? "concurrency " + concurrency
+            : "rate " + rate + "/s";
+        System.out.printf("Warming up for %s at %s%n", warmup, load);
+        loadTest.run(rate, concurrency, warmup);
+        loadTest.reset();
+
+        var pendingTimeBefore = pendingTime();
+        System.out.printf("Measuring for %s at %s%n", duration, load);
+        var start = System.nanoTime();
+        loadTest.run(rate, concurrency, duration);
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+        loadTest.report(elapsed, pendingTime().minus(pendingTimeBefore), stub);
+      }
+    }
+  }
+
+  private void run(String rate, int concurrency, Duration duration) {
+    var sampler = Flux.interval(Duration.ofMillis(100))
+        .subscribe(tick -> {
+          maxPending.accumulate((long) gaugeSum(PENDING));
+          maxActive.accumulate((long) gaugeSum(ACTIVE));
+        });
+    try {
+      if (rate == null) {
+        runClosedLoop(concurrency, duration);
+      } else {
+        runOpenLoop(Double.parseDouble(rate), duration);
+      }
+    } finally {
+      sampler.dispose();
+    }
+  }
+
+  private void runOpenLoop(double rate, Duration duration) {
+    // Flux.interval cannot tick faster than about once a millisecond, so higher rates start
+    // several lookups per tick.
+    var period = Duration.ofNanos(Math.max((long) (1e9 / rate), TimeUnit.MILLISECONDS.toNanos(1)));
+    var perTick = (int) Math.max(1, Math.round(rate * period.toNanos() / 1e9));
+    Flux.interval(period)
+        .take(duration)
+        .flatMap(tick -> Flux.range(0, perTick).flatMap(i -> lookup()), Integer.MAX_VALUE)
+        .blockLast();
+  }
+
+  private void runClosedLoop(int concurrency, Duration duration) {
+    var deadline = System.nanoTime() + duration.toNanos();
+    Flux.range(0, concurrency)
+        .flatMap(worker -> lookup().repeat(() -> System.nanoTime() < deadline), concurrency)
+        .blockLast();
+  }
+
+  private Mono<Void> lookup() {
+    return Mono.defer(() -> {
+      var start = System.nanoTime();
+      return service.execute()
+          .doOnNext(csv -> {
+            latencies.recordValue(System.nanoTime() - start);
+            (csv.equals("Not Found") ? notFound : succeeded).incrementAndGet();
+          })
+          .doOnError(e -> failures
+              .computeIfAbsent(failureName(e), name -> new AtomicLong())
+              .incrementAndGet())
+          .onErrorResume(e -> Mono.empty())
+          .then();
+    });
+  }
+
+  private void reset() {
+    latencies.reset();
+    succeeded.set(0);
+    notFound.set(0);
+    failures.clear();
+    maxPending.reset();
+    maxActive.reset();
+  }
+
+  private void report(Duration elapsed, PendingTime pendingTime, StatsApiStub stub) {
+    var seconds = elapsed.toNanos() / 1e9;
+    System.out.printf("%nThroughput      %10.1f lookups/s%n", succeeded.get() / seconds);
+    System.out.printf("Succeeded       %10d%n", succeeded.get());
+    System.out.printf("Not found       %10d%n", notFound.get());
+    failures.forEach((name, count) -> System.out.printf("Failed %-28s %d%n", name, count.get()));
+    System.out.printf("Stub 503s       %10d%n", stub.errors());
+    System.out.printf("%nLatency (ms)%n");
+    for (var percentile : new double[] {50, 99, 99.9}) {
+      System.out.printf(
+          "  p%-12s %10.1f%n",
+          percentile,
+          latencies.getValueAtPercentile(percentile) / 1e6);
+    }
+    System.out.printf("  max           %10.1f%n", latencies.getMaxValue() / 1e6);
+    System.out.printf("%nConnection pool%n");
+    System.out.printf("  active max    %10d%n", maxActive.get());
+    System.out.printf("  pending max   %10d%n", maxPending.get());
+    System.out.printf("  acquires      %10d%n", pendingTime.count());
+    System.out.printf("  acquire mean  %10.2f ms%n", pendingTime.meanMillis());
+    System.out.printf(
+        "  rejected      %10d (pending limit), %d (acquire timeout)%n",
+        count("PoolAcquirePendingLimitException"),
+        count("PoolAcquireTimeoutException"));
+  }
+
+  private long count(String failure) {
+    var count = failures.get(failure);
+    return count == null ? 0 : count.get();
+  }
+
+  /**
+   * The innermost exception's class, so that pool rejections are told apart from statsapi errors
+   * however WebClient wraps them.
+   */
+  private static String failureName(Throwable e) {
+    var cause = e;
+    while (cause.getCause() != null && cause.getCause() != cause) {
+      cause = cause.getCause();
+    }
+    return cause.getClass().getSimpleName();
+  }
+
+  private static double gaugeSum(String name) {
+    return Metrics.globalRegistry.find(name).gauges().stream()
+        .mapToDouble(Gauge::value)
+        .filter(value -> !Double.isNaN(value))
+        .sum();
+  }
+
+  private static PendingTime pendingTime() {
+    var count = 0L;
+    var totalNanos = 0.0;
+    for (var timer : Metrics.globalRegistry.find(PENDING_TIME).timers()) {
+      count += timer.count();
+      totalNanos += timer.totalTime(TimeUnit.NANOSECONDS);
+    }
+    return new PendingTime(count, totalNanos);
+  }
+
+  private static String property(
+      SimpleCommandLinePropertySource options,
+      String name,
+      String defaultValue) {
+    var value = options.getProperty(name);
+    return value == null ? defaultValue : value;
+  }
+
+  private static Duration duration(
+      SimpleCommandLinePropertySource options,
+      String name,
+      String defaultValue) {
+    return DurationStyle.detectAndParse(property(options, name, defaultValue));
+  }
+
+  /** Time spent waiting to acquire a pooled connection. */
+  private record PendingTime(long count, double totalNanos) {
+    PendingTime minus(PendingTime other) {
+      return new PendingTime(count - other.count, totalNanos - other.totalNanos);
+    }
+
+    double meanMillis() {
+      return count == 0 ? 0 : totalNanos / count / 1e6;
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package dev.agaber.sports;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Measures command line startup: the time from launching a JVM to the first byte of CSV on its
+ * stdout, for each startup mode, against a local stub of statsapi serving the test fixtures.
+ *
+ * <p>{@code train <lib dir> <archive>} does one run that dumps an AppCDS archive at exit.
+ * {@code benchmark <lib dir> <archive> <iterations>} runs every mode and prints the median and
+ * minimum. Both are wired up as Gradle tasks: {@code cdsArchive} and {@code startupBenchmark}.
+ */
+public final class StartupBenchmark {
+  private static final String MAIN_CLASS = "dev.agaber.sports.Application";
+
+  public static void main(String[] args) throws Exception {
+    var libDir = Path.of(args[1]);
+    var archive = Path.of(args[2]);
+    var stub = startStub();
+    try {
+      var statsApiUrl = "http://localhost:" + stub.port();
+      if (args[0].equals("train")) {
+        Files.deleteIfExists(archive);
+        var flags = ImmutableList.<String>builder()
+            .addAll(modes(archive).get("fast+aot"))
+            .add("-XX:ArchiveClassesAtExit=" + archive)
+            .build();
+        var elapsed = launch(libDir, flags, statsApiUrl);
+        System.out.printf("Training run finished in %d ms, archive at %s%n", elapsed, archive);
+      } else {
+        benchmark(libDir, archive, statsApiUrl, Integer.parseInt(args[3]));
+      }
+    } finally {
+      stub.stop();
+    }
+  }
+
+  private static void benchmark(Path libDir, Path archive, String statsApiUrl, int iterations)
+      throws IOException, InterruptedException {
+    System.out.printf("%-16s %12s %12s%n", "mode", "median (ms)", "min (ms)");
+    for (var mode : modes(archive).entrySet()) {
+      // One untimed run so the OS file cache is equally warm for every mode.
+      launch(libDir, mode.getValue(), statsApiUrl);
+      var samples = new long[iterations];
+      for (var i = 0; i < iterations; i++) {
+        samples[i] = launch(libDir, mode.getValue(), statsApiUrl);
+      }
+      Arrays.sort(samples);
+      System.out.printf(
+          "%-16s %12d %12d%n",
+          mode.getKey(),
+          samples[iterations / 2],
+          samples[0]);
+    }
+  }
+
+  private static Map<String, ImmutableList<String>> modes(Path archive) {
+    return ImmutableMap.of(
+        "default", ImmutableList.of("--spring.profiles.active=nologs"),
+        "fast", ImmutableList.of("--spring.profiles.active=fast,nologs"),
+        "fast+aot", ImmutableList.of(
+            "-Dspring.aot.enabled=true",
+            "--spring.profiles.active=fast,nologs"),
+        "fast+aot+cds", ImmutableList.of(
+            "-Dspring.aot.enabled=true",
+            "-XX:SharedArchiveFile=" + archive,
+            "--spring.profiles.active=fast,nologs"));
+  }
+
+  /** Runs the app once and returns the milliseconds until it printed its first byte. */
+  private static long launch(Path libDir, ImmutableList<String> flags, String statsApiUrl)
+      throws IOException, InterruptedException {
+    var command = new ArrayList<String>();
+    command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+    flags.stream().filter(flag -> !flag.startsWith("--")).forEach(command::add);
+    command.add("-cp");
+    command.add(classPath(libDir));
+    command.add(MAIN_CLASS);
+    flags.stream().filter(flag -> flag.startsWith("--")).forEach(command::add);
+    command.add("--baseball.statsApiUrl=" + statsApiUrl);
+    command.add("--baseball.team=137");
+
+    var start = System.nanoTime();
+    var process = new ProcessBuilder(command)
+        .redirectError(ProcessBuilder.Redirect.DISCARD)
+        .start();
+    long firstOutputNanos;
+    try (InputStream stdout = process.getInputStream()) {
+      if (stdout.read() < 0) {
+        throw new IllegalStateException("No output from " + String.join(" ", command));
+      }
+      firstOutputNanos = System.nanoTime() - start;
+      stdout.transferTo(OutputStream.nullOutputStream());
+    }
+    if (process.waitFor() != 0) {
+      throw new IllegalStateException("Startup run failed: " + String.join(" ", command));
+    }
+    return Duration.ofNanos(firstOutputNanos).toMillis();
+  }
+
+  /**
+   * Jars in a fixed order. CDS refuses an archive when the class path differs from the one it was
+   * created with, so the order cannot be left to a wildcard.
+   */
+  private static String classPath(Path libDir) throws IOException {
+    try (var jars = Files.list(libDir)) {
+      return jars.map(Path::toString)
+          .filter(jar -> jar.endsWith(".jar"))
+          .sorted()
+          .collect(Collectors.joining(File.pathSeparator));
+    }
+  }
+
+  private static WireMockServer startStub() throws IOException {
+    var server = new WireMockServer(options().dynamicPort());
+    server.start();
+    server.stubFor(get(urlPathEqualTo("/api/v1/teams/137")).willReturn(json("team-137.json")));
+    server.stubFor(get(urlPathEqualTo("/api/v1/teams/137/roster"))
+        .willReturn(json("team-137-roster.json")));
+    server.stubFor(get(urlPathEqualTo("/api/v1/venues/2395")).willReturn(json("venue-2395.json")));
+    return server;
+  }
+
+  private static ResponseDefinitionBuilder json(String fixture) throws IOException {
+    var path = "dev/agaber/sports/baseball/" + fixture;
+    try (var in = StartupBenchmark.class.getClassLoader().getResourceAsStream(path)) {
+      return aResponse()
+          .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+          .withBody(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package dev.agaber.sports;
+
+import dev.agaber.sports.HttpClientConfiguration.HttpClientConfig;
+import dev.agaber.sports.testing.StatsApiStub;
+import dev.agaber.sports.testing.StatsApiStub.LatencyDistribution;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.HttpProtocol;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares HTTP/1.1 with cleartext HTTP/2 on the transport from {@link
+ * HttpClientConfiguration#httpClient(HttpClientConfig)}, by sending {@code fanOut} roster requests
+ * at once to a local stub that accepts both.
+ *
+ * <p>Both modes report how long a whole fan-out takes, sample mode with its tail. Alongside the
+ * average, {@code connections} counts the TCP connections the stub accepted in the iteration and
+ * {@code connectMillis} the time spent opening them. The pool settings come from {@code
+ * application.yaml}. Run with {@code ./gradlew jmh -PjmhIncludes=TransportBenchmark}.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@Fork(1)
+@Measurement(iterations = 5, time = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class TransportBenchmark {
+  private static final String CONNECT_TIME = "reactor.netty.http.client.connect.time";
+
+  @Param({"HTTP11", "H2C"})
+  public HttpProtocol protocol;
+
+  @Param({"16", "256"})
+  public int fanOut;
+
+  @Param({"20"})
+  public int stubLatencyMillis;
+
+  private StatsApiStub stub;
+  private WebClient webClient;
+  private SimpleMeterRegistry registry;
+
+  @Setup
+  public void setUp() throws IOException {
+    stub = StatsApiStub.start(StatsApiStub.Options.builder()
+        .latency(LatencyDistribution.fixed(Duration.ofMillis(stubLatencyMillis)))
+        .protocols(Set.of(HttpProtocol.HTTP11, HttpProtocol.H2C))
+        .build());
+
+    // Reactor Netty publishes its client metrics to the global registry.
+    registry = new SimpleMeterRegistry();
+    Metrics.addRegistry(registry);
+    var httpConfig = httpClientConfig();
+    httpConfig.setProtocol(protocol);
+    var httpClient = HttpClientConfiguration.httpClient(httpConfig)
+        .metrics(true, uri -> "/api/v1/teams/{id}/roster");
+    webClient = WebClient.builder()
+        .baseUrl(stub.baseUrl())
+        .clientConnector(new ReactorClientHttpConnector(httpClient))
+        .build();
+  }
+
+  @TearDown
+  public void tearDown() {
+    stub.close();
+    Metrics.removeRegistry(registry);
+    registry.close();
+  }
+
+  @Benchmark
+  public long fanOut(Connections connections) {
+    var bytes = Flux.range(0, fanOut)
+        .flatMap(
+            i -> webClient.get()
+                .uri("/api/v1/teams/137/roster")
+                .retrieve()
+                .bodyToMono(byte[].class),
+            fanOut)
+        .map(body -> (long) body.length)
+        .reduce(0L, Long::sum)
+        .block();
+    connections.connections = stub.connections() - connections.connectionsAtStart;
+    connections.connectMillis = connectMillis() - connections.connectMillisAtStart;
+    return bytes;
+  }
+
+  /** Connection counts for the current iteration, reported next to the fan-out latency. */
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class Connections {
+    public long connections;
+    public double connectMillis;
+
+    long connectionsAtStart;
+    double connectMillisAtStart;
+
+    @Setup(Level.Iteration)
+    public void setUp(TransportBenchmark benchmark) {
+      connectionsAtStart = benchmark.stub.connections();
+      connectMillisAtStart = benchmark.connectMillis();
+      connections = 0;
+      connectMillis = 0;
+    }
+  }
+
+  private double connectMillis() {
+    return registry.find(CONNECT_TIME).timers().stream()
+        .mapToDouble(timer -> timer.totalTime(TimeUnit.MILLISECONDS))
+        .sum();
+  }
+
+  /** The {@code http-client} settings in {@code application.yaml}. */
+  private static HttpClientConfig httpClientConfig() throws IOException {
+    var environment = new StandardEnvironment();
+    new YamlPropertySourceLoader()
+        .load("application", new ClassPathResource("application.yaml"))
+        .forEach(environment.getPropertySources()::addLast);
+    return new Binder(ConfigurationPropertySources.get(environment))
+        .bind("http-client", HttpClientConfig.class)
+        .get();
+  }
+}
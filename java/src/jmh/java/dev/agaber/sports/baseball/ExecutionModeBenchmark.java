@@ -0,0 +1,121 @@
+package dev.agaber.sports.baseball;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.guava.GuavaModule;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import dev.agaber.sports.baseball.BaseballConfig.ExecutionMode;
+import dev.agaber.sports.testing.FakeClock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the Reactor and virtual thread execution modes on a full team lookup against a local
+ * stub that adds a fixed delay to every statsapi response.
+ *
+ * <p>Throughput mode reports lookups per second and sample mode reports the latency distribution,
+ * including the p0.99 and p0.999 tail. Run with
+ * {@code ./gradlew jmh -PjmhIncludes=ExecutionModeBenchmark}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@Fork(1)
+@Measurement(iterations = 5, time = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Threads(32)
+@Warmup(iterations = 3, time = 2)
+public class ExecutionModeBenchmark {
+  @Param({"REACTOR", "VIRTUAL_THREADS"})
+  public ExecutionMode mode;
+
+  @Param({"20"})
+  public int stubLatencyMillis;
+
+  private BaseballTeamService service;
+  private TeamDirectory teamDirectory;
+  private WireMockServer stub;
+
+  @Setup
+  public void setUp() throws IOException {
+    stub = new WireMockServer(options().dynamicPort().containerThreads(200));
+    stub.start();
+    stub.stubFor(get(urlPathEqualTo("/api/v1/teams/137")).willReturn(json("team-137.json")));
+    stub.stubFor(get(urlPathEqualTo("/api/v1/teams/137/roster"))
+        .willReturn(json("team-137-roster.json")));
+    stub.stubFor(get(urlPathEqualTo("/api/v1/venues/2395")).willReturn(json("venue-2395.json")));
+
+    var config = new BaseballConfig();
+    config.setDirectoryRefreshInterval(Duration.ofHours(1));
+    config.setExecutionMode(mode);
+    config.setStatsApiUrl("http://localhost:" + stub.port());
+    var objectMapper = new ObjectMapper()
+        .registerModule(new GuavaModule())
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    // No caching filters, so that every lookup goes all the way to the stub.
+    var webClient = WebClient.create();
+    var timedDecoder = new TimedDecoder(new SimpleMeterRegistry());
+    teamDirectory = new TeamDirectory(config, objectMapper, timedDecoder, webClient);
+    service = new BaseballTeamService(
+        config,
+        new FakeClock(LocalDate.of(2023, 9, 1)),
+        objectMapper,
+        teamDirectory,
+        timedDecoder,
+        webClient);
+  }
+
+  @TearDown
+  public void tearDown() {
+    teamDirectory.close();
+    stub.stop();
+  }
+
+  @Benchmark
+  public int lookupTeamById() {
+    DataBuffer csv = service.executeTeam("137", DefaultDataBufferFactory.sharedInstance).block();
+    try {
+      return csv.readableByteCount();
+    } finally {
+      DataBufferUtils.release(csv);
+    }
+  }
+
+  private ResponseDefinitionBuilder json(String fixture) throws IOException {
+    var path = "dev/agaber/sports/baseball/" + fixture;
+    try (var in = getClass().getClassLoader().getResourceAsStream(path)) {
+      return aResponse()
+          .withFixedDelay(stubLatencyMillis)
+          .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+          .withBody(in.readAllBytes());
+    }
+  }
+}
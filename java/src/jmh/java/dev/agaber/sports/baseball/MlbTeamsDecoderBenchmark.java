@@ -0,0 +1,66 @@
+package dev.agaber.sports.baseball;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.guava.GuavaModule;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbTeam;
+import dev.agaber.sports.baseball.MlbTeamsDecoder.TeamFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding the full {@code /api/v1/teams} directory into a {@code JsonNode} tree and then
+ * converting it to records against streaming it with the active team filter pushed down into the
+ * parser. Name lookups over an already decoded directory are in {@link TeamSearchIndexBenchmark}.
+ *
+ * <p>Run with {@code ./gradlew jmh}. The gc profiler is enabled in the build, so the
+ * {@code gc.alloc.rate.norm} column reports bytes allocated per lookup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+public class MlbTeamsDecoderBenchmark {
+  private ObjectMapper objectMapper;
+  private byte[] teamsJson;
+
+  @Setup
+  public void setUp() throws IOException {
+    objectMapper = new ObjectMapper()
+        .registerModule(new GuavaModule())
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    var path = "dev/agaber/sports/baseball/teams-allmlb.json";
+    try (var in = getClass().getClassLoader().getResourceAsStream(path)) {
+      teamsJson = in.readAllBytes();
+    }
+  }
+
+  @Benchmark
+  public Object treeThenConvertThenFilter() throws IOException {
+    var json = objectMapper.readTree(teamsJson).get("teams");
+    var teams = objectMapper.convertValue(json, new TypeReference<List<MlbTeam>>() {});
+    return teams.stream().filter(team -> TeamFilter.ACTIVE.matches(team.active())).toList();
+  }
+
+  @Benchmark
+  public Object streamingWithFilterPushdown() throws IOException {
+    try (var parser = objectMapper.createParser(teamsJson)) {
+      return MlbTeamsDecoder.decode(parser, TeamFilter.ACTIVE);
+    }
+  }
+}
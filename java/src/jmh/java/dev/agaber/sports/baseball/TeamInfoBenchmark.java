@@ -0,0 +1,106 @@
+package dev.agaber.sports.baseball;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.guava.GuavaModule;
+import dev.agaber.sports.baseball.BaseballTeamService.Id;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbRoster;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbTeam;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbVenue;
+import dev.agaber.sports.baseball.BaseballTeamService.TeamInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-team work after the team lookup: decoding the roster and venue responses, sorting the
+ * roster by position and rendering the CSV. Built from the Giants fixtures used by the unit
+ * tests.
+ *
+ * <p>Run with {@code ./gradlew jmh -PjmhIncludes=TeamInfoBenchmark}. The gc profiler is enabled
+ * in the build, so {@code gc.alloc.rate.norm} reports bytes allocated per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+public class TeamInfoBenchmark {
+  private static final int CHUNK_SIZE = 8192;
+
+  private ObjectMapper objectMapper;
+  private byte[] rosterJson;
+  private byte[] venueJson;
+  private TeamInfo teamInfo;
+
+  @Setup
+  public void setUp() throws IOException {
+    objectMapper = new ObjectMapper()
+        .registerModule(new GuavaModule())
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    rosterJson = read("team-137-roster.json");
+    venueJson = read("venue-2395.json");
+    var team = MlbTeam.builder()
+        .id(137)
+        .active(true)
+        .name("San Francisco Giants")
+        .venue(new Id(2395))
+        .build();
+    teamInfo = new TeamInfo(team, decodeRoster(), decodeVenue());
+  }
+
+  @Benchmark
+  public MlbRoster decodeRoster() throws IOException {
+    return objectMapper.readValue(rosterJson, MlbRoster.class);
+  }
+
+  /** The roster fed to the streaming decoder in network-sized chunks, as it would arrive. */
+  @Benchmark
+  public void decodeRosterStreaming(Blackhole blackhole) throws IOException {
+    try (var decoder = new MlbRosterDecoder(objectMapper)) {
+      for (var start = 0; start < rosterJson.length; start += CHUNK_SIZE) {
+        var end = Math.min(rosterJson.length, start + CHUNK_SIZE);
+        var chunk = DefaultDataBufferFactory.sharedInstance.wrap(
+            ByteBuffer.wrap(rosterJson, start, end - start));
+        decoder.feed(chunk).forEach(blackhole::consume);
+      }
+      decoder.endOfInput().forEach(blackhole::consume);
+    }
+  }
+
+  @Benchmark
+  public MlbVenue decodeVenue() throws IOException {
+    return BaseballTeamService.convertVenue(objectMapper, objectMapper.readTree(venueJson));
+  }
+
+  @Benchmark
+  public void sortByPosition(Blackhole blackhole) {
+    BaseballTeamService.sortByPosition(teamInfo.roster()).forEach(blackhole::consume);
+  }
+
+  @Benchmark
+  public String printCsv() {
+    return BaseballTeamService.printCsv(teamInfo);
+  }
+
+  private byte[] read(String fixture) throws IOException {
+    var path = "dev/agaber/sports/baseball/" + fixture;
+    try (var in = getClass().getClassLoader().getResourceAsStream(path)) {
+      return in.readAllBytes();
+    }
+  }
+}
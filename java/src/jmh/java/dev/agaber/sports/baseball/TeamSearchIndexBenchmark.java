@@ -0,0 +1,77 @@
+package dev.agaber.sports.baseball;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.guava.GuavaModule;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbTeam;
+import dev.agaber.sports.baseball.MlbTeamsDecoder.TeamFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Name lookups per second over the decoded 2023 team directory: the lower case substring scan the
+ * service used to run on every lookup against {@link TeamSearchIndex}.
+ *
+ * <p>Run with {@code ./gradlew jmh -PjmhIncludes=TeamSearchIndexBenchmark}. The gc profiler is
+ * enabled in the build, so the {@code gc.alloc.rate.norm} column shows what a lookup allocates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+public class TeamSearchIndexBenchmark {
+  /** Unique, ambiguous, abbreviated, prefixed and missing queries. */
+  @Param({"giants", "sox", "sf", "san fran", "knicks"})
+  public String query;
+
+  private List<MlbTeam> teams;
+  private TeamSearchIndex index;
+
+  @Setup
+  public void setUp() throws IOException {
+    var objectMapper = new ObjectMapper()
+        .registerModule(new GuavaModule())
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    var path = "dev/agaber/sports/baseball/teams-allmlb.json";
+    try (var in = getClass().getClassLoader().getResourceAsStream(path);
+        var parser = objectMapper.createParser(in)) {
+      teams = MlbTeamsDecoder.decode(parser, TeamFilter.ALL);
+    }
+    index = TeamSearchIndex.of(teams);
+  }
+
+  @Benchmark
+  public Object linearScan() {
+    var lowerCaseQuery = query.toLowerCase();
+    var matches = teams.stream()
+        .filter(team -> team.name().toLowerCase().contains(lowerCaseQuery))
+        .toList();
+    return matches.size() == 1 ? Optional.of(matches.get(0)) : Optional.empty();
+  }
+
+  @Benchmark
+  public Object find() {
+    return index.find(query);
+  }
+
+  @Benchmark
+  public Object search() {
+    return index.search(query);
+  }
+}
@@ -1,42 +1,65 @@
 package dev.agaber.sports;
 
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
 import com.fasterxml.jackson.datatype.guava.GuavaModule;
+import dev.agaber.sports.baseball.BaseballConfig;
 import dev.agaber.sports.baseball.BaseballTeamService;
+import dev.agaber.sports.baseball.BatchFailedException;
+import io.netty.buffer.PooledByteBufAllocator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.boot.SpringApplication;
 import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.time.Clock;
-import java.time.Duration;
 import java.util.concurrent.Executors;
 
 @Slf4j
 @SpringBootApplication
-public class Application implements CommandLineRunner {
+public class Application implements CommandLineRunner, ExitCodeGenerator {
+  private final BaseballConfig baseballConfig;
   private final BaseballTeamService baseballTeamService;
   private final Scheduler scheduler;
+  private final WebApplicationType webApplicationType;
   private final boolean isTest;
+  private int exitCode;
 
   Application(
       @Value("${isTest}") boolean isTest,
+      @Value("${spring.main.web-application-type}") WebApplicationType webApplicationType,
+      BaseballConfig baseballConfig,
       BaseballTeamService baseballTeamService,
       Scheduler scheduler) {
+    this.baseballConfig = baseballConfig;
     this.baseballTeamService = baseballTeamService;
     this.isTest = isTest;
     this.scheduler = scheduler;
+    this.webApplicationType = webApplicationType;
   }
 
   public static void main(String[] args) {
-    new SpringApplicationBuilder(Application.class)
-        .web(WebApplicationType.NONE)
-        .run(args);
+    // application.yaml defaults to a command line app. The server profile switches to a reactive
+    // web server instead.
+    var context = new SpringApplicationBuilder(Application.class).run(args);
+    if (context.getBean(Application.class).getExitCode() != 0) {
+      System.exit(SpringApplication.exit(context));
+    }
   }
 
   @Override
@@ -46,14 +69,53 @@ public class Application implements CommandLineRunner {
       System.err.println("isTest set to true. Exiting.");
       return;
     }
+    if (webApplicationType != WebApplicationType.NONE) {
+      log.info("Running as a server. Roster lookups are served over HTTP.");
+      return;
+    }
+
+    try {
+      writeCsv();
+    } finally {
+      // Must dispose otherwise the command line app will not terminate, whether or not the run
+      // succeeded.
+      scheduler.dispose();
+    }
+  }
 
-    var teamInfo = baseballTeamService.execute()
-        .subscribeOn(scheduler)
-        .block(Duration.ofSeconds(10));
-    System.out.println(teamInfo);
+  private void writeCsv() throws IOException {
+    // Teams are written out a buffer of a few at a time, as soon as it fills. Pooled buffers are
+    // released once written so the same few buffers are reused across the whole batch.
+    var bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+    var output = baseballConfig.getOutput();
+    var channel = output == null
+        ? Channels.newChannel(System.out)
+        : FileChannel.open(output, CREATE, TRUNCATE_EXISTING, WRITE);
+    try {
+      var written = DataBufferUtils
+          .write(baseballTeamService.executeStreaming(bufferFactory), channel)
+          .subscribeOn(scheduler)
+          .doOnNext(DataBufferUtils::release);
+      // The directory load and every team lookup are each bounded by the baseball.timeout
+      // deadline. A timeout here would have to grow with the size of the batch.
+      written.blockLast();
+    } catch (BatchFailedException e) {
+      // Every team that could be looked up has been written. Fail the run for the rest.
+      log.error("{}, see the warnings above", e.getMessage());
+      exitCode = 1;
+    } finally {
+      if (output == null) {
+        System.out.flush();
+      } else {
+        channel.close();
+      }
+    }
+  }
 
-    // Must dispose otherwise the command line app will not terminate.
-    scheduler.dispose();
+  /** 1 if some teams in a command line batch could not be looked up, otherwise 0. */
+  @Override
+  public int getExitCode() {
+    return exitCode;
   }
 
   @Configuration
@@ -69,8 +131,13 @@ public class Application implements CommandLineRunner {
     }
 
     @Bean
-    Scheduler scheduler(@Value("${spring.datasource.maximum-pool-size:10}") int connPoolSize) {
-      return Schedulers.fromExecutor(Executors.newFixedThreadPool(connPoolSize));
+    Scheduler scheduler(BaseballConfig baseballConfig) {
+      return switch (baseballConfig.getExecutionMode()) {
+        case REACTOR -> Schedulers.fromExecutorService(
+            Executors.newFixedThreadPool(baseballConfig.getSchedulerThreads()));
+        case VIRTUAL_THREADS -> Schedulers.fromExecutorService(
+            Executors.newVirtualThreadPerTaskExecutor());
+      };
     }
   }
 }
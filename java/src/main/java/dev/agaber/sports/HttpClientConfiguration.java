@@ -1,11 +1,35 @@
 package dev.agaber.sports;
 
+import dev.agaber.sports.baseball.BaseballConfig;
+import dev.agaber.sports.http.AdaptiveConcurrencyLimitFilter;
+import dev.agaber.sports.http.CircuitBreakerExchangeFilter;
+import dev.agaber.sports.http.CircuitBreakerExchangeFilter.State;
+import dev.agaber.sports.http.CoalescingExchangeFilter;
+import dev.agaber.sports.http.DeadlineExchangeFilter;
+import dev.agaber.sports.http.DiskCacheLockedException;
+import dev.agaber.sports.http.DiskResponseStore;
+import dev.agaber.sports.http.HedgingExchangeFilter;
+import dev.agaber.sports.http.HttpCacheFilter;
+import dev.agaber.sports.http.LoadBalancingExchangeFilter;
+import dev.agaber.sports.http.LoadBalancingExchangeFilter.Mirror;
+import dev.agaber.sports.http.MetricsExchangeFilter;
+import dev.agaber.sports.http.PersistentCacheFilter;
+import dev.agaber.sports.http.RateLimitExchangeFilter;
+import dev.agaber.sports.http.RequestBudget;
+import dev.agaber.sports.http.RetryExchangeFilter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import io.netty.channel.ChannelOption;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.codec.CodecCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
@@ -13,11 +37,23 @@ import org.springframework.http.MediaType;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.util.unit.DataSize;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.Http2AllocationStrategy;
+import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.HttpClient;
 import reactor.netty.resources.ConnectionProvider;
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Clock;
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
 
 @Configuration
 @Slf4j
@@ -26,25 +62,489 @@ class HttpClientConfiguration {
   @ConfigurationProperties("http-client")
   @Data
   static class HttpClientConfig {
+    private DataSize cacheMaxSize;
+    private DataSize diskCacheMaxSize;
     private DataSize maxResponseBufferSize;
     private Duration acquireTimeout;
+    private Duration circuitBreakerOpenDuration;
+    private Duration circuitBreakerSlowCall;
+    private Duration concurrencyLimitLatency;
     private Duration connectionTimeout;
+    private Duration diskCacheTtl;
     private Duration evictInterval;
+    private Duration hedgeMinDelay;
     private Duration idleTime;
+    private Duration loadBalancerDecay;
+    private Duration loadBalancerEjectDuration;
     private Duration maxLifeTime;
     private Duration readTimeout;
+    private Duration retryMaxBackoff;
+    private Duration retryMinBackoff;
     private Duration writeTimeout;
+    private boolean circuitBreaker;
+    private boolean coalesce;
     private boolean compress;
+    private boolean concurrencyLimit;
     private boolean keepAlive;
     private boolean metrics;
+    private boolean rateLimit;
     private boolean wiretap;
+    private double circuitBreakerFailureRate;
+    private double concurrencyLimitBackoff;
+    private double hedgeBudgetRatio;
+    private double hedgePercentile;
+    private double rateLimitPerSecond;
+    private double retryBudgetRatio;
+    private double retryJitter;
+    private int circuitBreakerMinCalls;
+    private int circuitBreakerWindow;
+    private int concurrencyLimitInitial;
+    private int concurrencyLimitMax;
+    private int concurrencyLimitMin;
+    private int http2MaxConnections;
+    private int http2MaxStreams;
+    private int loadBalancerEjectAfter;
     private int maxConnections;
     private int pendingAcquireMaxCount;
+    private int rateLimitBurst;
+    private int retryMaxAttempts;
+    private List<String> hedgeEndpoints = List.of();
+    private Path diskCachePath;
+    private HttpProtocol protocol = HttpProtocol.HTTP11;
+    private Map<String, Double> rateLimitEndpoints = Map.of();
   }
 
   @Bean
-  WebClient webClient(HttpClientConfig httpConfig, WebClient.Builder webClientBuilder) {
-    var connProvider = ConnectionProvider.builder("webclient-conn-pool")
+  CoalescingExchangeFilter coalescingExchangeFilter(HttpClientConfig httpConfig) {
+    return new CoalescingExchangeFilter((int) httpConfig.maxResponseBufferSize.toBytes());
+  }
+
+  @Bean
+  HttpCacheFilter httpCacheFilter(HttpClientConfig httpConfig, Clock clock) {
+    return new HttpCacheFilter(
+        clock,
+        httpConfig.cacheMaxSize.toBytes(),
+        (int) httpConfig.maxResponseBufferSize.toBytes());
+  }
+
+  /**
+   * Off unless {@code http-client.diskCachePath} is set. Checked here at runtime rather than with a
+   * condition because conditions are frozen at build time when the context is AOT processed. Also
+   * off, rather than failing startup, while another process has the file open.
+   */
+  @Bean
+  DiskResponseStore diskResponseStore(HttpClientConfig httpConfig, Clock clock)
+      throws IOException {
+    if (httpConfig.diskCachePath == null) {
+      return null;
+    }
+    try {
+      return DiskResponseStore.open(
+          httpConfig.diskCachePath,
+          httpConfig.diskCacheMaxSize.toBytes(),
+          clock);
+    } catch (DiskCacheLockedException e) {
+      log.warn("{}, running without a disk cache", e.getMessage());
+      return null;
+    }
+  }
+
+  /** Off unless there is a disk store to serve from. */
+  @Bean
+  PersistentCacheFilter persistentCacheFilter(
+      HttpClientConfig httpConfig,
+      ObjectProvider<DiskResponseStore> diskResponseStore,
+      ExchangeStrategies exchangeStrategies,
+      Clock clock) {
+    var store = diskResponseStore.getIfAvailable();
+    if (store == null) {
+      return null;
+    }
+    return new PersistentCacheFilter(
+        store,
+        exchangeStrategies,
+        clock,
+        httpConfig.diskCacheTtl,
+        (int) httpConfig.maxResponseBufferSize.toBytes());
+  }
+
+  /**
+   * Off unless {@code http-client.hedgeEndpoints} names at least one endpoint. Besides the budget's
+   * share of regular traffic, one hedge a second is always allowed, and at most ten can be saved
+   * up.
+   */
+  @Bean
+  HedgingExchangeFilter hedgingExchangeFilter(HttpClientConfig httpConfig) {
+    if (httpConfig.hedgeEndpoints.isEmpty()) {
+      return null;
+    }
+    return new HedgingExchangeFilter(
+        Set.copyOf(httpConfig.hedgeEndpoints),
+        httpConfig.hedgePercentile,
+        httpConfig.hedgeMinDelay,
+        new RequestBudget(httpConfig.hedgeBudgetRatio, 1, 10));
+  }
+
+  /** Off unless {@code http-client.concurrencyLimit} is set. */
+  @Bean
+  AdaptiveConcurrencyLimitFilter adaptiveConcurrencyLimitFilter(HttpClientConfig httpConfig) {
+    if (!httpConfig.concurrencyLimit) {
+      return null;
+    }
+    return new AdaptiveConcurrencyLimitFilter(
+        httpConfig.concurrencyLimitInitial,
+        httpConfig.concurrencyLimitMin,
+        httpConfig.concurrencyLimitMax,
+        httpConfig.concurrencyLimitLatency,
+        httpConfig.concurrencyLimitBackoff);
+  }
+
+  /**
+   * Off unless {@code http-client.retryMaxAttempts} allows more than one attempt. Like hedges,
+   * retries always get one a second on top of the budget's share, and at most ten can be saved up.
+   */
+  @Bean
+  RetryExchangeFilter retryExchangeFilter(HttpClientConfig httpConfig) {
+    if (httpConfig.retryMaxAttempts <= 1) {
+      return null;
+    }
+    return new RetryExchangeFilter(
+        httpConfig.retryMaxAttempts,
+        httpConfig.retryMinBackoff,
+        httpConfig.retryMaxBackoff,
+        httpConfig.retryJitter,
+        new RequestBudget(httpConfig.retryBudgetRatio, 1, 10));
+  }
+
+  /** Off unless {@code baseball.statsApiUrls} lists mirrors to spread requests over. */
+  @Bean
+  LoadBalancingExchangeFilter loadBalancingExchangeFilter(
+      HttpClientConfig httpConfig,
+      BaseballConfig baseballConfig) {
+    if (baseballConfig.getStatsApiUrls().isEmpty()) {
+      return null;
+    }
+    return new LoadBalancingExchangeFilter(
+        baseballConfig.getStatsApiUrls().stream().map(URI::create).toList(),
+        httpConfig.loadBalancerDecay,
+        httpConfig.loadBalancerEjectAfter,
+        httpConfig.loadBalancerEjectDuration);
+  }
+
+  /** Off unless {@code http-client.rateLimit} is set. */
+  @Bean
+  RateLimitExchangeFilter rateLimitExchangeFilter(HttpClientConfig httpConfig) {
+    if (!httpConfig.rateLimit) {
+      return null;
+    }
+    return new RateLimitExchangeFilter(
+        httpConfig.rateLimitPerSecond,
+        httpConfig.rateLimitBurst,
+        httpConfig.rateLimitEndpoints);
+  }
+
+  /** Off unless {@code http-client.circuitBreaker} is set. */
+  @Bean
+  CircuitBreakerExchangeFilter circuitBreakerExchangeFilter(HttpClientConfig httpConfig) {
+    if (!httpConfig.circuitBreaker) {
+      return null;
+    }
+    return new CircuitBreakerExchangeFilter(
+        httpConfig.circuitBreakerWindow,
+        httpConfig.circuitBreakerMinCalls,
+        httpConfig.circuitBreakerFailureRate,
+        httpConfig.circuitBreakerOpenDuration,
+        httpConfig.circuitBreakerSlowCall);
+  }
+
+  /** The counters kept by the client filters, published through Micrometer. */
+  @Bean
+  MeterBinder httpClientFilterMetrics(
+      ObjectProvider<AdaptiveConcurrencyLimitFilter> adaptiveConcurrencyLimitFilter,
+      ObjectProvider<CircuitBreakerExchangeFilter> circuitBreakerExchangeFilter,
+      CoalescingExchangeFilter coalescingExchangeFilter,
+      HttpCacheFilter httpCacheFilter,
+      ObjectProvider<DiskResponseStore> diskResponseStore,
+      ObjectProvider<HedgingExchangeFilter> hedgingExchangeFilter,
+      ObjectProvider<LoadBalancingExchangeFilter> loadBalancingExchangeFilter,
+      ObjectProvider<PersistentCacheFilter> persistentCacheFilter,
+      ObjectProvider<RateLimitExchangeFilter> rateLimitExchangeFilter,
+      ObjectProvider<RetryExchangeFilter> retryExchangeFilter) {
+    return registry -> {
+      cacheRequests(registry, "memory", "hit", httpCacheFilter, HttpCacheFilter::hits);
+      cacheRequests(registry, "memory", "miss", httpCacheFilter, HttpCacheFilter::misses);
+      cacheRequests(
+          registry, "memory", "revalidated", httpCacheFilter, HttpCacheFilter::revalidations);
+      FunctionCounter.builder(
+              "statsapi.client.cache.evictions", httpCacheFilter, HttpCacheFilter::evictions)
+          .tag("cache", "memory")
+          .register(registry);
+      Gauge.builder("statsapi.client.cache.size", httpCacheFilter, HttpCacheFilter::sizeBytes)
+          .tag("cache", "memory")
+          .baseUnit("bytes")
+          .register(registry);
+
+      FunctionCounter.builder(
+              "statsapi.client.coalesced.requests",
+              coalescingExchangeFilter,
+              CoalescingExchangeFilter::hits)
+          .description("Requests that joined an identical request already in flight")
+          .register(registry);
+      FunctionCounter.builder(
+              "statsapi.client.uncoalesced.requests",
+              coalescingExchangeFilter,
+              CoalescingExchangeFilter::misses)
+          .description("Requests that started a new upstream exchange")
+          .register(registry);
+
+      persistentCacheFilter.ifAvailable(filter -> {
+        cacheRequests(registry, "disk", "hit", filter, PersistentCacheFilter::hits);
+        cacheRequests(registry, "disk", "miss", filter, PersistentCacheFilter::misses);
+      });
+      diskResponseStore.ifAvailable(store -> {
+        FunctionCounter.builder(
+                "statsapi.client.cache.evictions", store, DiskResponseStore::evictions)
+            .tag("cache", "disk")
+            .register(registry);
+        FunctionCounter.builder(
+                "statsapi.client.cache.compactions", store, DiskResponseStore::compactions)
+            .tag("cache", "disk")
+            .register(registry);
+        Gauge.builder("statsapi.client.cache.entries", store, DiskResponseStore::size)
+            .tag("cache", "disk")
+            .register(registry);
+      });
+
+      hedgingExchangeFilter.ifAvailable(filter -> {
+        FunctionCounter.builder("statsapi.client.hedges", filter, HedgingExchangeFilter::hedges)
+            .description("Duplicate requests sent because the original was slow")
+            .tag("result", "sent")
+            .register(registry);
+        FunctionCounter.builder("statsapi.client.hedges", filter, HedgingExchangeFilter::hedgeWins)
+            .description("Duplicate requests sent because the original was slow")
+            .tag("result", "won")
+            .register(registry);
+        FunctionCounter.builder(
+                "statsapi.client.hedges", filter.budget(), RequestBudget::denied)
+            .description("Duplicate requests sent because the original was slow")
+            .tag("result", "over_budget")
+            .register(registry);
+      });
+
+      adaptiveConcurrencyLimitFilter.ifAvailable(filter -> {
+        Gauge.builder(
+                "statsapi.client.concurrency.limit",
+                filter,
+                AdaptiveConcurrencyLimitFilter::limit)
+            .description("Requests allowed in flight to statsapi")
+            .register(registry);
+        Gauge.builder(
+                "statsapi.client.concurrency.in.flight",
+                filter,
+                AdaptiveConcurrencyLimitFilter::inFlight)
+            .description("Requests in flight to statsapi")
+            .register(registry);
+        FunctionCounter.builder(
+                "statsapi.client.concurrency.rejected",
+                filter,
+                AdaptiveConcurrencyLimitFilter::rejected)
+            .description("Requests rejected because the concurrency limit was reached")
+            .register(registry);
+      });
+
+      retryExchangeFilter.ifAvailable(filter -> {
+        FunctionCounter.builder("statsapi.client.retries", filter, RetryExchangeFilter::retries)
+            .description("Requests sent again after a failure")
+            .tag("result", "sent")
+            .register(registry);
+        FunctionCounter.builder(
+                "statsapi.client.retries", filter, RetryExchangeFilter::exhausted)
+            .description("Requests sent again after a failure")
+            .tag("result", "exhausted")
+            .register(registry);
+        FunctionCounter.builder(
+                "statsapi.client.retries", filter.budget(), RequestBudget::denied)
+            .description("Requests sent again after a failure")
+            .tag("result", "over_budget")
+            .register(registry);
+      });
+
+      rateLimitExchangeFilter.ifAvailable(filter -> {
+        Gauge.builder(
+                "statsapi.client.rate.limit.waiting",
+                filter,
+                RateLimitExchangeFilter::waiting)
+            .description("Requests waiting for a rate limit token")
+            .register(registry);
+        FunctionTimer.builder(
+                "statsapi.client.rate.limit.wait",
+                filter,
+                RateLimitExchangeFilter::requests,
+                RateLimitExchangeFilter::waitNanos,
+                TimeUnit.NANOSECONDS)
+            .description("Time requests spent waiting for a rate limit token")
+            .register(registry);
+        FunctionCounter.builder(
+                "statsapi.client.rate.limit.throttled",
+                filter,
+                RateLimitExchangeFilter::throttled)
+            .description("Responses where statsapi throttled us with a 429")
+            .register(registry);
+      });
+
+      loadBalancingExchangeFilter.ifAvailable(filter -> {
+        for (var mirror : filter.mirrors()) {
+          var baseUrl = mirror.baseUrl().toString();
+          Gauge.builder(
+                  "statsapi.client.mirror.latency",
+                  mirror,
+                  m -> m.latency().toNanos() / 1e9)
+              .description("Moving average latency of a statsapi mirror")
+              .tag("mirror", baseUrl)
+              .baseUnit("seconds")
+              .register(registry);
+          Gauge.builder("statsapi.client.mirror.outstanding", mirror, Mirror::outstanding)
+              .description("Requests in flight to a statsapi mirror")
+              .tag("mirror", baseUrl)
+              .register(registry);
+          Gauge.builder("statsapi.client.mirror.ejected", mirror, m -> m.isEjected() ? 1 : 0)
+              .description("Whether a statsapi mirror is ejected for failing")
+              .tag("mirror", baseUrl)
+              .register(registry);
+          FunctionCounter.builder("statsapi.client.mirror.requests", mirror, Mirror::requests)
+              .description("Requests sent to a statsapi mirror")
+              .tag("mirror", baseUrl)
+              .register(registry);
+          FunctionCounter.builder(
+                  "statsapi.client.mirror.ejections", mirror, Mirror::ejections)
+              .description("Times a statsapi mirror was ejected for failing")
+              .tag("mirror", baseUrl)
+              .register(registry);
+        }
+      });
+
+      circuitBreakerExchangeFilter.ifAvailable(filter -> {
+        for (var state : State.values()) {
+          FunctionCounter.builder(
+                  "statsapi.client.circuit.breaker.transitions",
+                  filter,
+                  breakers -> breakers.transitions(state))
+              .description("Times an endpoint's circuit breaker changed state")
+              .tag("state", state.name().toLowerCase())
+              .register(registry);
+        }
+        Gauge.builder(
+                "statsapi.client.circuit.breaker.not.closed",
+                filter,
+                CircuitBreakerExchangeFilter::notClosed)
+            .description("Endpoints whose circuit breaker is open or half open")
+            .register(registry);
+        FunctionCounter.builder(
+                "statsapi.client.circuit.breaker.rejected",
+                filter,
+                CircuitBreakerExchangeFilter::rejected)
+            .description("Requests rejected because their endpoint's circuit breaker was open")
+            .register(registry);
+      });
+    };
+  }
+
+  /**
+   * Boot's codec customizations (e.g. the shared ObjectMapper) plus our buffer limit. Shared with
+   * filters that have to build responses without an upstream response to copy them from.
+   */
+  @Bean
+  ExchangeStrategies exchangeStrategies(
+      HttpClientConfig httpConfig,
+      ObjectProvider<CodecCustomizer> codecCustomizers) {
+    return ExchangeStrategies.builder()
+        .codecs(configurer -> {
+          codecCustomizers.orderedStream().forEach(customizer -> customizer.customize(configurer));
+          configurer
+              .defaultCodecs()
+              .maxInMemorySize((int) httpConfig.maxResponseBufferSize.toBytes());
+        })
+        .build();
+  }
+
+  @Bean
+  WebClient webClient(
+      HttpClientConfig httpConfig,
+      WebClient.Builder webClientBuilder,
+      ExchangeStrategies exchangeStrategies,
+      CoalescingExchangeFilter coalescingExchangeFilter,
+      HttpCacheFilter httpCacheFilter,
+      ObjectProvider<PersistentCacheFilter> persistentCacheFilter,
+      ObjectProvider<RetryExchangeFilter> retryExchangeFilter,
+      ObjectProvider<RateLimitExchangeFilter> rateLimitExchangeFilter,
+      ObjectProvider<CircuitBreakerExchangeFilter> circuitBreakerExchangeFilter,
+      ObjectProvider<HedgingExchangeFilter> hedgingExchangeFilter,
+      ObjectProvider<AdaptiveConcurrencyLimitFilter> adaptiveConcurrencyLimitFilter,
+      ObjectProvider<LoadBalancingExchangeFilter> loadBalancingExchangeFilter,
+      MeterRegistry meterRegistry) {
+    var httpClient = httpClient(httpConfig);
+
+    // Filters run in the order they are added. The deadline goes first so that it also bounds time
+    // spent waiting on another caller's coalesced request. A cache hit never reaches the coalescing
+    // filter, and concurrent misses share one upstream exchange.
+    webClientBuilder.filter(new DeadlineExchangeFilter());
+    if (httpConfig.cacheMaxSize.toBytes() > 0) {
+      webClientBuilder.filter(httpCacheFilter);
+    }
+    if (httpConfig.coalesce) {
+      webClientBuilder.filter(coalescingExchangeFilter);
+    }
+    persistentCacheFilter.ifAvailable(webClientBuilder::filter);
+    // Each retry asks the circuit breaker again, so retries stop as soon as the breaker opens.
+    retryExchangeFilter.ifAvailable(webClientBuilder::filter);
+    // After retries so that every attempt takes a token, and before the breaker so that time spent
+    // waiting for one is not mistaken for a slow call. Hedges are capped by a budget of their own.
+    rateLimitExchangeFilter.ifAvailable(webClientBuilder::filter);
+    // A hedged request and its hedge count as one call to the breaker.
+    circuitBreakerExchangeFilter.ifAvailable(webClientBuilder::filter);
+    // Hedges only duplicate requests that missed every cache, and each copy is timed on its own.
+    hedgingExchangeFilter.ifAvailable(webClientBuilder::filter);
+    // After hedging, so that a hedge needs a free slot like any other request.
+    adaptiveConcurrencyLimitFilter.ifAvailable(webClientBuilder::filter);
+    // Each attempt and each hedge picks a mirror of its own, and the caches above still key
+    // responses by the statsApiUrl they were asked for, so every mirror shares them.
+    loadBalancingExchangeFilter.ifAvailable(webClientBuilder::filter);
+    // Only requests that actually go to statsapi are timed and logged.
+    if (httpConfig.metrics) {
+      webClientBuilder.filter(new MetricsExchangeFilter(meterRegistry));
+    }
+    webClientBuilder.filter(logRequestAndResponseInfo());
+
+    return webClientBuilder
+        .clientConnector(new ReactorClientHttpConnector(httpClient))
+        .exchangeStrategies(exchangeStrategies)
+        .defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+        .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+        .build();
+  }
+
+  /**
+   * The transport for statsapi calls, without any of the filters. Shared with benchmarks that
+   * compare protocols.
+   *
+   * <p>Over HTTP/1.1 each request in flight needs a connection of its own, so the pool holds up to
+   * {@code maxConnections}. Over HTTP/2 requests are multiplexed as streams, so a couple of
+   * connections with up to {@code http2MaxStreams} streams each are enough, and fewer connections
+   * also means fewer TCP and TLS handshakes. {@code H2C} speaks cleartext HTTP/2 from the first
+   * byte, so it only works against servers that expect that, such as a local stub, and its pool
+   * holds up to {@code http2MaxConnections}.
+   *
+   * <p>{@code H2} negotiates HTTP/2 over TLS for an https statsApiUrl and upgrades a cleartext
+   * connection for an http one, and either way falls back to HTTP/1.1 if statsapi does not offer
+   * HTTP/2. A fallback connection carries one request at a time, so the pool keeps {@code
+   * maxConnections}: HTTP/2 only adds a connection once the open ones have no streams left, while
+   * {@code http2MaxConnections} would throttle HTTP/1.1 to that many requests in flight. TLS comes
+   * from the scheme of each request's URL rather than from {@code secure()}, which would force it
+   * onto http URLs too.
+   */
+  static HttpClient httpClient(HttpClientConfig httpConfig) {
+    var http2 = httpConfig.protocol != HttpProtocol.HTTP11;
+    var connProviderBuilder = ConnectionProvider.builder("webclient-conn-pool")
         .maxConnections(httpConfig.maxConnections)
         .maxIdleTime(httpConfig.idleTime)
         .maxLifeTime(httpConfig.maxLifeTime)
@@ -52,28 +552,53 @@ class HttpClientConfiguration {
         .pendingAcquireMaxCount(httpConfig.pendingAcquireMaxCount)
         .pendingAcquireTimeout(httpConfig.acquireTimeout)
         .metrics(httpConfig.metrics)
-        .lifo()
-        .build();
+        .lifo();
+    if (http2) {
+      // Replaces maxConnections, so it has to come after it.
+      connProviderBuilder.allocationStrategy(Http2AllocationStrategy.builder()
+          .maxConnections(httpConfig.protocol == HttpProtocol.H2
+              ? httpConfig.maxConnections
+              : httpConfig.http2MaxConnections)
+          .maxConcurrentStreams(httpConfig.http2MaxStreams)
+          .build());
+    }
 
-    var httpClient = HttpClient.create(connProvider)
+    var httpClient = HttpClient.create(connProviderBuilder.build())
         .compress(httpConfig.compress)
-        .doOnConnected(connection ->
-            connection
-                .addHandlerLast(new ReadTimeoutHandler((int) httpConfig.readTimeout.toSeconds()))
-                .addHandlerLast(new WriteTimeoutHandler((int) httpConfig.writeTimeout.toSeconds())))
         .keepAlive(httpConfig.keepAlive)
         .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) httpConfig.connectionTimeout.toMillis())
         .wiretap(httpConfig.wiretap);
+    if (http2) {
+      // Idle timeout handlers on a multiplexed connection would fire for the connection as a whole
+      // rather than for one request, so each request gets a response timeout instead.
+      httpClient = httpClient.responseTimeout(httpConfig.readTimeout);
+    } else {
+      httpClient = httpClient.doOnConnected(connection ->
+          connection
+              .addHandlerLast(new ReadTimeoutHandler(
+                  httpConfig.readTimeout.toMillis(),
+                  TimeUnit.MILLISECONDS))
+              .addHandlerLast(new WriteTimeoutHandler(
+                  httpConfig.writeTimeout.toMillis(),
+                  TimeUnit.MILLISECONDS)));
+    }
+    return switch (httpConfig.protocol) {
+      case HTTP11 -> httpClient.protocol(HttpProtocol.HTTP11);
+      case H2 -> httpClient.protocol(HttpProtocol.H2, HttpProtocol.H2C, HttpProtocol.HTTP11);
+      case H2C -> httpClient.protocol(HttpProtocol.H2C);
+    };
+  }
 
-    return webClientBuilder
-        .clientConnector(new ReactorClientHttpConnector(httpClient))
-        .codecs(configurer ->
-            configurer
-                .defaultCodecs()
-                .maxInMemorySize((int) httpConfig.maxResponseBufferSize.toBytes()))
-        .defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
-        .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-        .build();
+  private static <T> void cacheRequests(
+      MeterRegistry registry,
+      String cache,
+      String result,
+      T filter,
+      ToDoubleFunction<T> count) {
+    FunctionCounter.builder("statsapi.client.cache.requests", filter, count)
+        .tag("cache", cache)
+        .tag("result", result)
+        .register(registry);
   }
 
   private static ExchangeFilterFunction logRequestAndResponseInfo() {
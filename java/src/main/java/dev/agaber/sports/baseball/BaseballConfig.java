@@ -4,10 +4,55 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
 @Configuration
 @ConfigurationProperties("baseball")
 @Data
 public class BaseballConfig {
+  private Duration directoryRefreshInterval;
+  /** Time allowed for each team lookup, all of its statsapi calls included. */
+  private Duration timeout = Duration.ofSeconds(10);
+  private ExecutionMode executionMode = ExecutionMode.REACTOR;
+  /**
+   * Mirrors of {@code statsApiUrl}, such as caching proxies. Requests are still built against
+   * {@code statsApiUrl}, then sent to whichever mirror the load balancer picks.
+   */
+  private List<String> statsApiUrls = List.of();
+  private List<String> teams = List.of();
+  private Path output;
+  private Path teamsFile;
   private String statsApiUrl;
   private String team;
+  /**
+   * Whether to fetch a team, its roster and its venue in one {@code hydrate} call, falling back to
+   * separate calls when statsapi does not hydrate them.
+   */
+  private boolean hydrate = true;
+  private boolean preserveOrder;
+  /** Whether to print every active team's roster from a {@link LeagueSnapshot} instead. */
+  private boolean snapshot;
+  private int batchConcurrency;
+  private int schedulerThreads;
+  /** Rosters fetched at once while building a {@link LeagueSnapshot}. */
+  private int snapshotConcurrency = 8;
+
+  /** Whether more than one team was requested through {@code teams} or {@code teamsFile}. */
+  public boolean isBatch() {
+    return !teams.isEmpty() || teamsFile != null;
+  }
+
+  /** How a team, its roster and its venue are fetched. */
+  public enum ExecutionMode {
+    /** One non-blocking pipeline. The roster and venue calls are zipped. */
+    REACTOR,
+
+    /**
+     * Plain blocking calls on virtual threads. The roster and venue calls are forked onto their own
+     * virtual threads and joined.
+     */
+    VIRTUAL_THREADS,
+  }
 }
@@ -0,0 +1,65 @@
+package dev.agaber.sports.baseball;
+
+import dev.agaber.sports.http.CircuitBreakerOpenException;
+import dev.agaber.sports.http.ConcurrencyLimitExceededException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/** Serves the same CSV as the command line when the app runs with the {@code server} profile. */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RestController
+class BaseballController {
+  private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+  private final BaseballTeamService baseballTeamService;
+
+  BaseballController(BaseballTeamService baseballTeamService) {
+    this.baseballTeamService = baseballTeamService;
+  }
+
+  @GetMapping("/teams/{query}/roster")
+  Mono<ResponseEntity<Flux<DataBuffer>>> roster(
+      @PathVariable String query,
+      ServerHttpResponse response) {
+    return baseballTeamService.executeTeam(query, response.bufferFactory())
+        .map(csv -> ResponseEntity.ok().contentType(TEXT_CSV).body(Flux.just(csv)))
+        .defaultIfEmpty(ResponseEntity.notFound().build());
+  }
+
+  /** Streams each team's rows as soon as they are ready, e.g. {@code /rosters?team=137,mets}. */
+  @GetMapping("/rosters")
+  ResponseEntity<Flux<DataBuffer>> rosters(
+      @RequestParam("team") List<String> teams,
+      @RequestParam(defaultValue = "false") boolean preserveOrder,
+      ServerHttpResponse response) {
+    var csv = baseballTeamService.executeBatch(
+        Flux.fromIterable(teams),
+        preserveOrder,
+        response.bufferFactory());
+    return ResponseEntity.ok().contentType(TEXT_CSV).body(csv);
+  }
+
+  /** Shed load is the client's to retry: statsapi is struggling, not this request. */
+  @ExceptionHandler
+  ResponseEntity<Void> concurrencyLimitExceeded(ConcurrencyLimitExceededException e) {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+  }
+
+  @ExceptionHandler
+  ResponseEntity<Void> circuitBreakerOpen(CircuitBreakerOpenException e) {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+  }
+}
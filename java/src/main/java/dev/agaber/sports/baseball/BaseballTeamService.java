@@ -8,76 +8,416 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.primitives.Ints;
+import dev.agaber.sports.baseball.MlbTeamsDecoder.TeamFilter;
+import dev.agaber.sports.http.Deadline;
+import dev.agaber.sports.http.RequestAttributes;
 import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.util.function.Tuples;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.ContextView;
 
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.Clock;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
 public final class BaseballTeamService {
+  private static final ImmutableList<String> CSV_HEADER =
+      ImmutableList.of("Team", "Jersey", "Name", "Position", "Home Stadium");
+  private static final ImmutableList<String> LEAGUE_CSV_HEADER =
+      ImmutableList.of("Team", "Jersey", "Name", "Position");
+
+  /** Batch output is handed on in buffers of at least this many bytes, a few teams' worth. */
+  private static final int CSV_BUFFER_BYTES = 8 * 1024;
+
+  private static final Scheduler VIRTUAL_THREADS = virtualThreadScheduler();
+
   private final BaseballConfig config;
   private final Clock clock;
   private final ObjectMapper objectMapper;
+  private final TeamDirectory teamDirectory;
+  private final TimedDecoder timedDecoder;
   private final WebClient webClient;
 
   BaseballTeamService(
       BaseballConfig config,
       Clock clock,
       ObjectMapper objectMapper,
+      TeamDirectory teamDirectory,
+      TimedDecoder timedDecoder,
       WebClient webClient) {
     this.clock = clock;
     this.config = config;
     this.objectMapper = objectMapper;
+    this.teamDirectory = teamDirectory;
+    this.timedDecoder = timedDecoder;
     this.webClient = webClient;
   }
 
   public Mono<String> execute() {
+    return fetchTeamInfo(config.getTeam())
+        .map(BaseballTeamService::printCsv)
+        .defaultIfEmpty("Not Found");
+  }
+
+  /**
+   * Streams the CSV for {@code baseball.team}, for every team listed in {@code baseball.teams}
+   * and {@code baseball.teamsFile} under one header, or with {@code baseball.snapshot} for the
+   * whole league. See {@link #executeSnapshot(DataBufferFactory)} for the last.
+   *
+   * <p>Each team is encoded straight into a buffer from {@code bufferFactory} as soon as its
+   * roster and venue arrive, or in input order if {@code baseball.preserveOrder} is set. A buffer
+   * is handed on once it holds a few teams, so output can start before the last team is fetched.
+   * Batch teams that cannot be found are logged and left out, and so are teams whose lookup fails,
+   * except that the batch then ends with a {@link BatchFailedException} once the other teams are
+   * written. The caller owns the emitted buffers and must release them.
+   */
+  public Flux<DataBuffer> executeStreaming(DataBufferFactory bufferFactory) {
+    if (config.isSnapshot()) {
+      return executeSnapshot(bufferFactory);
+    }
+    if (config.isBatch()) {
+      return Flux.defer(() -> {
+        var failures = new AtomicInteger();
+        return executeBatch(readBatchQueries(), config.isPreserveOrder(), bufferFactory, failures)
+            .concatWith(Mono.defer(() -> failures.get() == 0
+                ? Mono.empty()
+                : Mono.error(new BatchFailedException(failures.get()))));
+      });
+    }
+    return executeTeam(config.getTeam(), bufferFactory)
+        .switchIfEmpty(Mono.fromSupplier(() ->
+            bufferFactory.allocateBuffer(16)
+                .write("Not Found" + System.lineSeparator(), StandardCharsets.UTF_8)))
+        .flux();
+  }
+
+  /** The CSV for one team, header included, or empty if nothing matches {@code query}. */
+  public Mono<DataBuffer> executeTeam(String query, DataBufferFactory bufferFactory) {
+    return fetchTeamInfo(query).map(teamInfo -> encode(bufferFactory, printer -> {
+      writeHeader(printer);
+      writeRows(printer, teamInfo);
+    }));
+  }
+
+  /**
+   * The CSV for every team in {@code queries} under one header, in buffers of a few teams each. See
+   * {@link #executeStreaming(DataBufferFactory)}, except that teams whose lookup fails are only
+   * logged.
+   */
+  public Flux<DataBuffer> executeBatch(
+      Flux<String> queries,
+      boolean preserveOrder,
+      DataBufferFactory bufferFactory) {
+    return executeBatch(queries, preserveOrder, bufferFactory, new AtomicInteger());
+  }
+
+  private Flux<DataBuffer> executeBatch(
+      Flux<String> queries,
+      boolean preserveOrder,
+      DataBufferFactory bufferFactory,
+      AtomicInteger failures) {
+    return encode(
+        bufferFactory,
+        BaseballTeamService::writeHeader,
+        fetchBatch(queries, preserveOrder, failures),
+        BaseballTeamService::writeRows);
+  }
+
+  /**
+   * Every active team's roster as one CSV without venues, from a {@link LeagueSnapshot}. Teams are
+   * in ID order and each team's players are sorted by position. Nothing is written unless every
+   * roster is fetched: the snapshot fails as a whole.
+   */
+  public Flux<DataBuffer> executeSnapshot(DataBufferFactory bufferFactory) {
+    return fetchLeagueSnapshot().flatMapMany(snapshot -> encode(
+        bufferFactory,
+        printer -> printer.printRecord(LEAGUE_CSV_HEADER),
+        Flux.fromIterable(snapshot.teams()),
+        (printer, team) -> writeRows(printer, team, snapshot.roster(team.id()))));
+  }
+
+  /**
+   * Every active team's roster for the current season, fetched at most {@code
+   * baseball.snapshotConcurrency} at a time. Each roster gets {@code baseball.timeout} of its own,
+   * and the snapshot fails if any roster cannot be fetched.
+   */
+  Mono<LeagueSnapshot> fetchLeagueSnapshot() {
+    var season = LocalDate.now(clock).getYear();
+    return teamDirectory.teams(season)
+        .contextWrite(Deadline.within(config.getTimeout()))
+        .flatMapIterable(teams -> teams)
+        .filter(MlbTeam::active)
+        .flatMap(
+            team -> fetchMlbRoster(team)
+                .map(roster -> Map.entry(team, roster))
+                .contextWrite(Deadline.within(config.getTimeout())),
+            config.getSnapshotConcurrency())
+        .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+        .map(LeagueSnapshot::of);
+  }
+
+  /** Teams that fail to look up are logged, counted in {@code failures} and left out. */
+  private Flux<TeamInfo> fetchBatch(
+      Flux<String> queries,
+      boolean preserveOrder,
+      AtomicInteger failures) {
+    var season = LocalDate.now(clock).getYear();
+    Function<String, Mono<TeamInfo>> lookup = query -> fetchTeamInfo(query)
+        .switchIfEmpty(Mono.fromRunnable(() -> log.warn("No team found for {}", query)))
+        .onErrorResume(e -> {
+          log.warn("Could not look up {}", query, e);
+          failures.incrementAndGet();
+          return Mono.empty();
+        });
+    // Load the directory up front so that name lookups, and ID lookups when hydrate is off, are
+    // answered from it. Hydrated ID lookups always go to statsapi, as do the rest if this fails.
+    var directoryThenQueries = teamDirectory.teams(season)
+        .contextWrite(Deadline.within(config.getTimeout()))
+        .onErrorResume(e -> {
+          log.warn("Could not load the {} team directory", season, e);
+          return Mono.empty();
+        })
+        .thenMany(queries);
+    return preserveOrder
+        ? directoryThenQueries.flatMapSequential(lookup, config.getBatchConcurrency())
+        : directoryThenQueries.flatMap(lookup, config.getBatchConcurrency());
+  }
+
+  private Flux<String> readBatchQueries() {
+    var fromFile = config.getTeamsFile() == null
+        ? Flux.<String>empty()
+        : Mono.fromCallable(() -> Files.readAllLines(config.getTeamsFile()))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMapIterable(lines -> lines);
+    return Flux.fromIterable(config.getTeams())
+        .concatWith(fromFile)
+        .map(String::strip)
+        .filter(query -> !query.isEmpty() && !query.startsWith("#"));
+  }
+
+  /**
+   * Looks up a team, its roster and its venue within {@code baseball.timeout}, or within the
+   * caller's {@link Deadline} if that is sooner. Each statsapi call only gets the time that is
+   * left.
+   */
+  private Mono<TeamInfo> fetchTeamInfo(String query) {
+    return Mono.deferContextual(context -> {
+      var lookup = switch (config.getExecutionMode()) {
+        case REACTOR -> fetchTeamInfoReactive(query);
+        case VIRTUAL_THREADS -> Mono.fromCallable(() -> fetchTeamInfoBlocking(query, context))
+            .flatMap(Mono::justOrEmpty)
+            .subscribeOn(VIRTUAL_THREADS);
+      };
+      return Deadline.current(context).map(deadline -> deadline.bound(lookup)).orElse(lookup);
+    }).contextWrite(Deadline.within(config.getTimeout()));
+  }
+
+  private Mono<TeamInfo> fetchTeamInfoReactive(String query) {
+    if (!config.isHydrate()) {
+      return fetchTeamInfoSeparately(query);
+    }
+    return fetchHydratedTeamUnlessRejected(query)
+        .flatMap(hydrated -> {
+          if (hydrated.isEmpty()) {
+            return fetchTeamInfoSeparately(query);
+          }
+          var team = hydrated.get();
+          return team.roster() == null
+              ? fetchRosterAndVenue(team.team())
+              : Mono.just(team.teamInfo());
+        });
+  }
+
+  private Mono<TeamInfo> fetchTeamInfoSeparately(String query) {
+    return fetchMlbTeam(query)
+        .filter(Optional::isPresent)
+        .map(Optional::get)
+        .flatMap(this::fetchRosterAndVenue);
+  }
+
+  private Mono<TeamInfo> fetchRosterAndVenue(MlbTeam team) {
     // The call to lookup Venue is unnecessary because enough venue information
     // is already present in the team response. It's here to give a reason for
     // using async Flux code.
-    var teamMono = fetchMlbTeam(config.getTeam())
-        .filter(Optional::isPresent)
-        .map(Optional::get);
-    var rosterMono = teamMono.flatMap(this::fetchMlbRoster);
-    var venueMono = teamMono.flatMap(team -> fetchMlbVenueById(team.venue().id()));
-    return teamMono
-        .zipWith(rosterMono, (team, roster) -> Tuples.of(team, roster))
-        .zipWith(venueMono, (tuple, venue) -> Tuples.of(tuple.getT1(), tuple.getT2(), venue))
-        .map(tuple -> printRoster(tuple.getT2(), tuple.getT1(), tuple.getT3()))
-        .defaultIfEmpty("Not Found");
+    return Mono.zip(fetchMlbRoster(team), fetchMlbVenueById(team.venue().id()))
+        .map(tuple -> new TeamInfo(team, tuple.getT1(), tuple.getT2()));
+  }
+
+  /**
+   * The same lookup as {@link #fetchTeamInfoReactive(String)} written as blocking calls. Must run
+   * on a virtual thread: each call parks its thread until the response arrives, and the roster and
+   * venue calls get a virtual thread of their own so that they overlap. Blocking drops the Reactor
+   * context, so the caller's is handed to each call to keep its deadline.
+   */
+  private Optional<TeamInfo> fetchTeamInfoBlocking(String query, ContextView context)
+      throws InterruptedException {
+    if (config.isHydrate()) {
+      var hydrated = fetchHydratedTeamUnlessRejected(query).contextWrite(context).blockOptional();
+      if (hydrated.isEmpty()) {
+        return Optional.empty();
+      }
+      if (hydrated.get().isPresent()) {
+        var team = hydrated.get().get();
+        return team.roster() == null
+            ? fetchRosterAndVenueBlocking(team.team(), context)
+            : Optional.of(team.teamInfo());
+      }
+    }
+    var team = fetchMlbTeam(query)
+        .contextWrite(context)
+        .blockOptional()
+        .flatMap(Function.identity());
+    if (team.isEmpty()) {
+      return Optional.empty();
+    }
+    return fetchRosterAndVenueBlocking(team.get(), context);
+  }
+
+  private Optional<TeamInfo> fetchRosterAndVenueBlocking(MlbTeam team, ContextView context)
+      throws InterruptedException {
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      var roster = executor.submit(() ->
+          fetchMlbRoster(team).contextWrite(context).block());
+      var venue = executor.submit(() ->
+          fetchMlbVenueById(team.venue().id()).contextWrite(context).block());
+      try {
+        var mlbRoster = roster.get();
+        var mlbVenue = venue.get();
+        return mlbRoster == null || mlbVenue == null
+            ? Optional.empty()
+            : Optional.of(new TeamInfo(team, mlbRoster, mlbVenue));
+      } catch (ExecutionException e) {
+        throw Exceptions.propagate(e.getCause());
+      } finally {
+        // Stops the other call early if one of them failed, rather than waiting on it to close.
+        roster.cancel(true);
+        venue.cancel(true);
+      }
+    }
   }
 
+  /**
+   * The team's players, collected since they are printed sorted by position. Only the decoded
+   * players are held, never the response body.
+   */
   private Mono<MlbRoster> fetchMlbRoster(MlbTeam team) {
+    return fetchMlbPlayers(team).collect(toImmutableList()).map(MlbRoster::new);
+  }
+
+  /**
+   * The team's roster, decoded player by player as the response arrives rather than after all of
+   * it has been buffered. The request is marked {@link RequestAttributes#STREAMED}, so the response
+   * caches and request coalescing, which would hold the whole body, let it through.
+   */
+  private Flux<MlbPlayer> fetchMlbPlayers(MlbTeam team) {
     var uri = UriComponentsBuilder.newInstance()
         .uri(URI.create(config.getStatsApiUrl()))
         .path("/api/v1/teams/" + team.id() + "/roster")
+        .queryParam("fields", FieldProjection.of(MlbRoster.class))
         .build(true)
         .toUri();
     return webClient.get()
         .uri(uri)
-        .exchangeToMono(response ->
+        .attribute(RequestAttributes.ENDPOINT, TimedDecoder.ROSTER)
+        .attribute(RequestAttributes.STREAMED, true)
+        .exchangeToFlux(response ->
             response.statusCode() == HttpStatus.OK
-                ? response.bodyToMono(MlbRoster.class)
-                : response.createError());
+                ? timedDecoder.<MlbPlayer>decodeChunks(
+                    response,
+                    TimedDecoder.ROSTER,
+                    () -> new MlbRosterDecoder(objectMapper))
+                : response.<MlbPlayer>createError().flux());
+  }
+
+  /**
+   * {@link #fetchHydratedTeam(String)}, or an empty optional if statsapi rejected the hydration so
+   * that the caller falls back to separate calls. Only the hydrated call's {@code 400} is caught
+   * here, so a failing roster or venue call does not rerun the lookup.
+   */
+  private Mono<Optional<MlbHydratedTeam>> fetchHydratedTeamUnlessRejected(String query) {
+    return fetchHydratedTeam(query)
+        .map(Optional::of)
+        .onErrorResume(WebClientResponseException.BadRequest.class, e -> {
+          log.warn("statsapi rejected hydrate for {}, using separate calls", query);
+          return Mono.just(Optional.empty());
+        });
+  }
+
+  /**
+   * The team with its roster and venue from one {@code hydrate=roster(person),venue} call, or
+   * empty if there is no such active team. The roster is null if statsapi ignored the hydration,
+   * and a rejected hydration fails with a {@code 400}.
+   */
+  private Mono<MlbHydratedTeam> fetchHydratedTeam(String query) {
+    Mono<Integer> teamId = isTeamId(query)
+        ? Mono.justOrEmpty(Ints.tryParse(query)).filter(id -> id != 11)
+        : fetchMlbTeamByName(query).flatMap(Mono::justOrEmpty).map(MlbTeam::id);
+    return teamId.flatMap(id -> {
+      var uri = UriComponentsBuilder.newInstance()
+          .uri(URI.create(config.getStatsApiUrl()))
+          .path("/api/v1/teams/" + id)
+          .queryParam("hydrate", "roster(person),venue")
+          .queryParam("fields", FieldProjection.of(MlbHydratedTeams.class))
+          .build(true)
+          .toUri();
+      return webClient.get()
+          .uri(uri)
+          .attribute(RequestAttributes.ENDPOINT, TimedDecoder.TEAM_HYDRATED)
+          .exchangeToMono(response -> {
+            if (response.statusCode() == HttpStatus.OK) {
+              return timedDecoder.decode(
+                      response,
+                      TimedDecoder.TEAM_HYDRATED,
+                      body -> objectMapper.readValue(body, MlbHydratedTeams.class))
+                  .flatMapIterable(MlbHydratedTeams::teams)
+                  .filter(MlbHydratedTeam::active)
+                  .next();
+            } else if (response.statusCode() == HttpStatus.NOT_FOUND) {
+              log.warn("Could not find team with ID {}", id);
+              return Mono.empty();
+            } else {
+              return response.createError();
+            }
+          });
+    });
+  }
+
+  private static boolean isTeamId(String query) {
+    return query.matches("^[0-9]*$");
   }
 
   private Mono<Optional<MlbTeam>> fetchMlbTeam(String query) {
-    boolean isInt = query.matches("^[0-9]*$");
-    return isInt ? fetchMlbTeamById(query) : fetchMlbTeamByName(query);
+    return isTeamId(query) ? fetchMlbTeamById(query) : fetchMlbTeamByName(query);
   }
 
   private Mono<Optional<MlbTeam>> fetchMlbTeamById(String teamId) {
@@ -86,19 +426,25 @@ public final class BaseballTeamService {
       return Mono.just(Optional.empty());
     }
     var season = LocalDate.now(clock).getYear();
+    var cachedTeam = Optional.ofNullable(Ints.tryParse(teamId))
+        .flatMap(id -> teamDirectory.cachedTeam(season, id))
+        .filter(MlbTeam::active);
+    if (cachedTeam.isPresent()) {
+      return Mono.just(cachedTeam);
+    }
     var uri = UriComponentsBuilder.newInstance()
         .uri(URI.create(config.getStatsApiUrl()))
         .path("/api/v1/teams/" + teamId)
+        .queryParam("fields", FieldProjection.of(MlbTeams.class))
         .build(true)
         .toUri();
     return webClient.get()
         .uri(uri)
+        .attribute(RequestAttributes.ENDPOINT, TimedDecoder.TEAM_BY_ID)
         .exchangeToMono(response -> {
           if (response.statusCode() == HttpStatus.OK) {
-            return response.bodyToMono(JsonNode.class)
-                .map(json -> json.get("teams"))
-                .map(v -> objectMapper.convertValue(v, new TypeReference<List<MlbTeam>>() {}))
-                .map(teams -> teams.stream().filter(MlbTeam::active).findFirst());
+            return timedDecoder.decode(response, TimedDecoder.TEAM_BY_ID, this::decodeActiveTeams)
+                .map(teams -> teams.stream().findFirst());
           } else if (response.statusCode() == HttpStatus.NOT_FOUND) {
             log.warn("Could not find team with ID {}", teamId);
             return Mono.just(Optional.empty());
@@ -108,89 +454,220 @@ public final class BaseballTeamService {
         });
   }
 
+  private ImmutableList<MlbTeam> decodeActiveTeams(InputStream body) throws IOException {
+    try (var parser = objectMapper.getFactory().createParser(body)) {
+      return MlbTeamsDecoder.decode(parser, TeamFilter.ACTIVE);
+    }
+  }
+
   private Mono<Optional<MlbTeam>> fetchMlbTeamByName(String teamName) {
     var season = LocalDate.now(clock).getYear();
-    var uri = UriComponentsBuilder.newInstance()
-        .uri(URI.create(config.getStatsApiUrl()))
-        .path("/api/v1/teams")
-        .queryParam("season", season)
-        .queryParam("sportIds", 1)
-        .build(true)
-        .toUri();
-    return webClient.get()
-        .uri(uri)
-        .exchangeToMono(response -> {
-          if (response.statusCode() == HttpStatus.OK) {
-            return response.bodyToMono(JsonNode.class)
-                .map(json -> json.get("teams"))
-                .map(j -> objectMapper.convertValue(j, new TypeReference<List<MlbTeam>>() {}))
-                .map(teams -> filterTeamsByName(teams, teamName));
-          } else {
-            return response.createError();
-          }
-        });
+    return teamDirectory.searchIndex(season).map(index -> findTeamByName(index, teamName));
   }
 
-  private static Optional<MlbTeam> filterTeamsByName(List<MlbTeam> teams, String name) {
-    var matches = teams.stream()
-        .filter(team -> team.name().toLowerCase().contains(name.toLowerCase()))
-        .collect(toImmutableList());
-    if (matches.size() > 1) {
-      log.warn("Multiple teams matched {}. Ambiguous match results in empty response", name);
-      return Optional.empty();
+  private static Optional<MlbTeam> findTeamByName(TeamSearchIndex index, String name) {
+    var team = index.find(name);
+    if (team.isEmpty()) {
+      var candidates = index.search(name);
+      if (!candidates.isEmpty()) {
+        log.warn(
+            "Multiple teams matched {}: {}. Ambiguous match results in empty response",
+            name,
+            candidates.stream().map(MlbTeam::name).toList());
+      }
     }
-    return Optional.ofNullable(Iterables.getOnlyElement(matches, null));
+    return team;
   }
 
   private Mono<MlbVenue> fetchMlbVenueById(int venueId) {
     var uri = UriComponentsBuilder.newInstance()
         .uri(URI.create(config.getStatsApiUrl()))
         .path("/api/v1/venues/" + venueId)
+        .queryParam("fields", FieldProjection.of(MlbVenues.class))
         .build(true)
         .toUri();
     return webClient.get()
         .uri(uri)
+        .attribute(RequestAttributes.ENDPOINT, TimedDecoder.VENUE)
         .exchangeToMono(response -> {
           if (response.statusCode() == HttpStatus.OK) {
-            return response.bodyToMono(JsonNode.class)
-                .map(json -> json.get("venues"))
-                .map(v -> objectMapper.convertValue(v, new TypeReference<List<MlbVenue>>() {
-                }))
-                .map(venues -> Iterables.getOnlyElement(venues));
+            return timedDecoder.decode(
+                response,
+                TimedDecoder.VENUE,
+                body -> convertVenue(objectMapper, objectMapper.readTree(body)));
           } else {
             return response.createError();
           }
         });
   }
 
-  private String printRoster(MlbRoster roster, MlbTeam team, MlbVenue venue) {
-    var sw = new StringWriter();
-    try (var printer = CSVFormat.DEFAULT.print(sw)) {
-      printer.printRecord("Team", "Jersey", "Name", "Position", "Home Stadium");
-      var players = roster.roster().stream()
-          .sorted(comparing(player -> player.position.abbreviation))
-          .collect(toImmutableList());
-      for (var player : players) {
-        printer.printRecord(
-            team.name(),
-            player.jerseyNumber(),
-            player.person().fullName(),
-            player.position().abbreviation(),
-            venue.name);
-      }
+  /** The one venue in a {@code /api/v1/venues/{id}} response. */
+  static MlbVenue convertVenue(ObjectMapper objectMapper, JsonNode json) {
+    var venues = objectMapper.convertValue(
+        json.get("venues"),
+        new TypeReference<List<MlbVenue>>() {});
+    return Iterables.getOnlyElement(venues);
+  }
+
+  private static Scheduler virtualThreadScheduler() {
+    // A new virtual thread per task. There is nothing to pool, so nothing to dispose either.
+    var threadFactory = Thread.ofVirtual().name("team-info-", 0).factory();
+    return Schedulers.fromExecutor(task -> threadFactory.newThread(task).start());
+  }
+
+  private static void writeHeader(CSVPrinter printer) throws IOException {
+    printer.printRecord(CSV_HEADER);
+  }
+
+  /** The CSV for one team, header included. */
+  static String printCsv(TeamInfo teamInfo) {
+    return print(printer -> {
+      writeHeader(printer);
+      writeRows(printer, teamInfo);
+    }).toString();
+  }
+
+  /** Players in the order they are printed: by position abbreviation. */
+  static Stream<MlbPlayer> sortByPosition(MlbRoster roster) {
+    return roster.roster().stream().sorted(comparing(player -> player.position.abbreviation));
+  }
+
+  private static void writeRows(CSVPrinter printer, TeamInfo teamInfo) throws IOException {
+    var players = sortByPosition(teamInfo.roster()).iterator();
+    while (players.hasNext()) {
+      var player = players.next();
+      printer.printRecord(
+          teamInfo.team().name(),
+          player.jerseyNumber(),
+          player.person().fullName(),
+          player.position().abbreviation(),
+          teamInfo.venue().name);
+    }
+  }
+
+  private static void writeRows(CSVPrinter printer, MlbTeam team, ImmutableList<MlbPlayer> roster)
+      throws IOException {
+    var players = sortByPosition(new MlbRoster(roster)).iterator();
+    while (players.hasNext()) {
+      var player = players.next();
+      printer.printRecord(
+          team.name(),
+          player.jerseyNumber(),
+          player.person().fullName(),
+          player.position().abbreviation());
+    }
+  }
+
+  private static StringBuilder print(CsvWriter writer) {
+    var csv = new StringBuilder();
+    try (var printer = CSVFormat.DEFAULT.print(csv)) {
+      writer.write(printer);
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
-    return sw.toString();
+    return csv;
+  }
+
+  /** The whole CSV in one buffer, however large it gets. */
+  private static DataBuffer encode(DataBufferFactory bufferFactory, CsvWriter writer) {
+    var csv = new CsvBuffers(bufferFactory, Integer.MAX_VALUE);
+    csv.write(writer);
+    return csv.take();
+  }
+
+  /**
+   * A header and then each item's rows, in buffers of at least {@link #CSV_BUFFER_BYTES} apart
+   * from the last. A buffer still being filled when {@code items} fails or the output is
+   * cancelled is released.
+   */
+  private static <T> Flux<DataBuffer> encode(
+      DataBufferFactory bufferFactory,
+      CsvWriter header,
+      Flux<T> items,
+      CsvRowWriter<T> rows) {
+    return Flux.defer(() -> {
+          var csv = new CsvBuffers(bufferFactory, CSV_BUFFER_BYTES);
+          return Flux.justOrEmpty(csv.write(header))
+              .concatWith(items.<DataBuffer>handle((item, sink) -> {
+                var full = csv.write(printer -> rows.write(printer, item));
+                if (full != null) {
+                  sink.next(full);
+                }
+              }))
+              .concatWith(Mono.fromSupplier(csv::take))
+              .doFinally(signal -> csv.release());
+        })
+        .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+  }
+
+  @FunctionalInterface
+  private interface CsvWriter {
+    void write(CSVPrinter printer) throws IOException;
+  }
+
+  @FunctionalInterface
+  private interface CsvRowWriter<T> {
+    void write(CSVPrinter printer, T item) throws IOException;
+  }
+
+  /**
+   * Prints CSV straight into a buffer from {@code bufferFactory}, with no intermediate string, and
+   * starts a new buffer once one holds {@code flushBytes}. Synchronized since a batch can be
+   * cancelled from another thread while a team is being written.
+   */
+  private static final class CsvBuffers {
+    private final DataBufferFactory bufferFactory;
+    private final int flushBytes;
+    private DataBuffer buffer;
+    private CSVPrinter printer;
+
+    CsvBuffers(DataBufferFactory bufferFactory, int flushBytes) {
+      this.bufferFactory = bufferFactory;
+      this.flushBytes = flushBytes;
+    }
+
+    /** Prints to the current buffer, and returns it if that filled it up, or null otherwise. */
+    synchronized DataBuffer write(CsvWriter writer) {
+      try {
+        if (buffer == null) {
+          buffer = bufferFactory.allocateBuffer(CSV_BUFFER_BYTES);
+          printer = CSVFormat.DEFAULT.print(
+              new OutputStreamWriter(buffer.asOutputStream(), StandardCharsets.UTF_8));
+        }
+        writer.write(printer);
+        // Moves what the writer has encoded so far into the buffer.
+        printer.flush();
+      } catch (IOException e) {
+        release();
+        throw new RuntimeException(e);
+      }
+      return buffer.readableByteCount() >= flushBytes ? take() : null;
+    }
+
+    /** Hands on the current buffer, or null if nothing has been printed since the last one. */
+    synchronized DataBuffer take() {
+      var taken = buffer;
+      buffer = null;
+      printer = null;
+      return taken;
+    }
+
+    synchronized void release() {
+      if (buffer != null) {
+        DataBufferUtils.release(take());
+      }
+    }
   }
 
+  record TeamInfo(MlbTeam team, MlbRoster roster, MlbVenue venue) {}
+
   // MLB statsapi objects.
 
   @Builder(toBuilder = true)
-  private record MlbPerson(int id, String fullName) {}
+  record MlbPerson(int id, String fullName) {}
 
   @Builder(toBuilder = true)
-  private record MlbPlayer(
+  record MlbPlayer(
       MlbPerson person,
       String jerseyNumber,
       MlbPosition position,
@@ -198,31 +675,68 @@ public final class BaseballTeamService {
   }
 
   @Builder(toBuilder = true)
-  private record MlbPosition(String name, String type, String abbreviation) {}
+  record MlbPosition(String name, String type, String abbreviation) {}
 
   @Builder(toBuilder = true)
-  private record MlbRoster(ImmutableList<MlbPlayer> roster) {}
+  record MlbRoster(ImmutableList<MlbPlayer> roster) {}
 
   @Builder(toBuilder = true)
-  private record MlbStatus(String description) {}
+  record MlbStatus(String description) {}
 
   @Builder(toBuilder = true)
-  private record MlbTeam(
+  record MlbTeam(
       int id,
       boolean active,
       String name,
       String locationName,
       String teamName,
+      String abbreviation,
+      String teamCode,
       Id venue) {
   }
 
+  /**
+   * A team from a {@code hydrate=roster(person),venue} response. Unlike in a plain team response
+   * its venue is the full venue, and its roster is present.
+   */
   @Builder(toBuilder = true)
-  private record MlbVenue(
+  record MlbHydratedTeam(
+      int id,
+      boolean active,
+      String name,
+      String locationName,
+      String teamName,
+      String abbreviation,
+      String teamCode,
+      MlbVenue venue,
+      MlbRoster roster) {
+    MlbTeam team() {
+      return new MlbTeam(
+          id, active, name, locationName, teamName, abbreviation, teamCode, new Id(venue.id()));
+    }
+
+    TeamInfo teamInfo() {
+      return new TeamInfo(team(), roster, venue);
+    }
+  }
+
+  @Builder(toBuilder = true)
+  record MlbHydratedTeams(ImmutableList<MlbHydratedTeam> teams) {}
+
+  /** A teams response. Decoded by {@link MlbTeamsDecoder}, but describes what it reads. */
+  @Builder(toBuilder = true)
+  record MlbTeams(ImmutableList<MlbTeam> teams) {}
+
+  @Builder(toBuilder = true)
+  record MlbVenue(
       int id,
       String name,
       boolean active) {
   }
 
   @Builder(toBuilder = true)
-  private record Id(int id) {}
+  record MlbVenues(ImmutableList<MlbVenue> venues) {}
+
+  @Builder(toBuilder = true)
+  record Id(int id) {}
 }
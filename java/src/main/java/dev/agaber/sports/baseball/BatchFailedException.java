@@ -0,0 +1,19 @@
+package dev.agaber.sports.baseball;
+
+/**
+ * Ends a command line batch in which some teams could not be looked up, after the teams that
+ * could have been written out.
+ */
+public final class BatchFailedException extends RuntimeException {
+  private final int failures;
+
+  public BatchFailedException(int failures) {
+    super(failures + (failures == 1 ? " team" : " teams") + " in the batch could not be looked up");
+    this.failures = failures;
+  }
+
+  /** Number of teams whose lookup failed. */
+  public int failures() {
+    return failures;
+  }
+}
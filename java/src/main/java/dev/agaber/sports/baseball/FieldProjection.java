@@ -0,0 +1,54 @@
+package dev.agaber.sports.baseball;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Derives statsapi's {@code fields} query parameter from the records a response is decoded into,
+ * so that statsapi leaves out everything the records would ignore anyway.
+ *
+ * <p>statsapi keeps a field if its name is listed and its parent was kept, whatever its depth. The
+ * parameter is therefore the name of every record component, following nested records and the
+ * elements of lists. It is worked out once per type.
+ */
+final class FieldProjection {
+  private static final ConcurrentMap<Class<?>, String> PROJECTIONS = new ConcurrentHashMap<>();
+
+  private FieldProjection() {}
+
+  /** The {@code fields} value for a response decoded into {@code type}. */
+  static String of(Class<? extends Record> type) {
+    return PROJECTIONS.computeIfAbsent(
+        type,
+        key -> String.join(",", names(key, new LinkedHashSet<>(), new HashSet<>())));
+  }
+
+  private static Set<String> names(Class<?> type, Set<String> names, Set<Class<?>> visited) {
+    if (!visited.add(type)) {
+      return names;
+    }
+    for (var component : type.getRecordComponents()) {
+      names.add(component.getName());
+      var valueType = elementType(component.getGenericType());
+      if (valueType.isRecord()) {
+        names(valueType, names, visited);
+      }
+    }
+    return names;
+  }
+
+  /** The type itself, or the element type of a list of it. */
+  private static Class<?> elementType(Type type) {
+    if (type instanceof ParameterizedType parameterized
+        && parameterized.getRawType() instanceof Class<?> raw
+        && Iterable.class.isAssignableFrom(raw)) {
+      return elementType(parameterized.getActualTypeArguments()[0]);
+    }
+    return type instanceof Class<?> raw ? raw : Object.class;
+  }
+}
@@ -0,0 +1,227 @@
+package dev.agaber.sports.baseball;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbPerson;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbPlayer;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbPosition;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbRoster;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbStatus;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbTeam;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Every active team's roster at one point in time, held column by column.
+ *
+ * <p>Values that repeat across players, such as positions, statuses and jersey numbers, are each
+ * stored once in a dictionary and players refer to them by a small code. Teams are stored once
+ * and players are grouped by team, so a team's name costs nothing per player. Dictionary values
+ * and teams are also interned across snapshots, so keeping several snapshots around mostly costs
+ * the per-player columns. Players are rebuilt from the columns when a query returns them.
+ */
+final class LeagueSnapshot {
+  private static final Interner<MlbTeam> TEAMS = Interners.newWeakInterner();
+  private static final Interner<MlbPosition> POSITIONS = Interners.newWeakInterner();
+  private static final Interner<MlbStatus> STATUSES = Interners.newWeakInterner();
+  private static final Interner<String> JERSEY_NUMBERS = Interners.newWeakInterner();
+
+  /** A player together with the team whose roster they are on. */
+  record RosterEntry(MlbTeam team, MlbPlayer player) {}
+
+  private final ImmutableList<MlbTeam> teams;
+  private final ImmutableMap<Integer, Integer> teamIndexById;
+  // Rows from teamStarts[i] up to teamStarts[i + 1] are the players of teams.get(i).
+  private final int[] teamStarts;
+  private final ImmutableList<MlbPosition> positions;
+  private final ImmutableList<MlbStatus> statuses;
+  private final ImmutableList<String> jerseyNumbers;
+  private final int[] personIds;
+  private final String[] fullNames;
+  private final short[] positionCodes;
+  private final short[] statusCodes;
+  private final short[] jerseyNumberCodes;
+  private final int[][] rowsByPosition;
+  private final int[] rowsByPersonId;
+
+  private LeagueSnapshot(Map<MlbTeam, MlbRoster> rosters) {
+    var orderedTeams = rosters.keySet().stream()
+        .sorted(Comparator.comparingInt(MlbTeam::id))
+        .collect(toImmutableList());
+    var rowCount = orderedTeams.stream().mapToInt(team -> players(rosters.get(team)).size()).sum();
+    var positionDictionary = new Dictionary<>(POSITIONS);
+    var statusDictionary = new Dictionary<>(STATUSES);
+    var jerseyDictionary = new Dictionary<>(JERSEY_NUMBERS);
+    var teamIndexes = ImmutableMap.<Integer, Integer>builder();
+
+    teamStarts = new int[orderedTeams.size() + 1];
+    personIds = new int[rowCount];
+    fullNames = new String[rowCount];
+    positionCodes = new short[rowCount];
+    statusCodes = new short[rowCount];
+    jerseyNumberCodes = new short[rowCount];
+    var row = 0;
+    for (var i = 0; i < orderedTeams.size(); i++) {
+      var team = orderedTeams.get(i);
+      teamIndexes.put(team.id(), i);
+      teamStarts[i] = row;
+      for (var player : players(rosters.get(team))) {
+        var person = player.person();
+        personIds[row] = person == null ? 0 : person.id();
+        fullNames[row] = person == null ? null : person.fullName();
+        positionCodes[row] = positionDictionary.encode(player.position());
+        statusCodes[row] = statusDictionary.encode(player.status());
+        jerseyNumberCodes[row] = jerseyDictionary.encode(player.jerseyNumber());
+        row++;
+      }
+    }
+    teamStarts[orderedTeams.size()] = row;
+
+    teams = orderedTeams.stream().map(TEAMS::intern).collect(toImmutableList());
+    teamIndexById = teamIndexes.buildKeepingLast();
+    positions = positionDictionary.values();
+    statuses = statusDictionary.values();
+    jerseyNumbers = jerseyDictionary.values();
+    rowsByPosition = new int[positions.size()][];
+    for (var code = 0; code < positions.size(); code++) {
+      var positionCode = code;
+      rowsByPosition[code] = IntStream.range(0, rowCount)
+          .filter(r -> positionCodes[r] == positionCode)
+          .toArray();
+    }
+    rowsByPersonId = IntStream.range(0, rowCount)
+        .boxed()
+        .sorted(Comparator.comparingInt(r -> personIds[r]))
+        .mapToInt(Integer::intValue)
+        .toArray();
+  }
+
+  /** Builds a snapshot from each team's roster. */
+  static LeagueSnapshot of(Map<MlbTeam, MlbRoster> rosters) {
+    return new LeagueSnapshot(rosters);
+  }
+
+  /** The teams in the snapshot, by ID. */
+  ImmutableList<MlbTeam> teams() {
+    return teams;
+  }
+
+  /** Number of players across all rosters. */
+  int size() {
+    return personIds.length;
+  }
+
+  /** The roster of the team with {@code teamId}, or an empty list if it is not in the snapshot. */
+  ImmutableList<MlbPlayer> roster(int teamId) {
+    var index = teamIndexById.get(teamId);
+    if (index == null) {
+      return ImmutableList.of();
+    }
+    return IntStream.range(teamStarts[index], teamStarts[index + 1])
+        .mapToObj(this::player)
+        .collect(toImmutableList());
+  }
+
+  /** Every player at the position with this abbreviation, e.g. {@code P} or {@code SS}. */
+  ImmutableList<RosterEntry> byPosition(String abbreviation) {
+    return IntStream.range(0, positions.size())
+        .filter(code -> positions.get(code) != null
+            && abbreviation.equals(positions.get(code).abbreviation()))
+        .flatMap(code -> Arrays.stream(rowsByPosition[code]))
+        .sorted()
+        .mapToObj(this::entry)
+        .collect(toImmutableList());
+  }
+
+  /**
+   * Where the person with {@code personId} is listed. Usually one entry, but a player traded while
+   * the snapshot was being fetched can appear on both teams.
+   */
+  ImmutableList<RosterEntry> byPersonId(int personId) {
+    var low = 0;
+    var high = rowsByPersonId.length;
+    while (low < high) {
+      var mid = (low + high) >>> 1;
+      if (personIds[rowsByPersonId[mid]] < personId) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    var entries = ImmutableList.<RosterEntry>builder();
+    for (var i = low; i < rowsByPersonId.length && personIds[rowsByPersonId[i]] == personId; i++) {
+      entries.add(entry(rowsByPersonId[i]));
+    }
+    return entries.build();
+  }
+
+  private RosterEntry entry(int row) {
+    return new RosterEntry(teams.get(teamIndex(row)), player(row));
+  }
+
+  private MlbPlayer player(int row) {
+    return new MlbPlayer(
+        new MlbPerson(personIds[row], fullNames[row]),
+        decode(jerseyNumbers, jerseyNumberCodes[row]),
+        decode(positions, positionCodes[row]),
+        decode(statuses, statusCodes[row]));
+  }
+
+  private int teamIndex(int row) {
+    var index = Arrays.binarySearch(teamStarts, row);
+    if (index < 0) {
+      return -index - 2;
+    }
+    // Teams with empty rosters share a start with the next team, so take the last of them.
+    while (index + 1 < teams.size() && teamStarts[index + 1] == row) {
+      index++;
+    }
+    return index;
+  }
+
+  private static List<MlbPlayer> players(MlbRoster roster) {
+    return roster == null || roster.roster() == null ? List.of() : roster.roster();
+  }
+
+  private static <T> T decode(List<T> dictionary, short code) {
+    return code < 0 ? null : dictionary.get(code);
+  }
+
+  /** Assigns each distinct value a code in order of first appearance. Null is always -1. */
+  private static final class Dictionary<T> {
+    private final Interner<T> interner;
+    private final Map<T, Short> codes = new HashMap<>();
+    private final List<T> values = new ArrayList<>();
+
+    Dictionary(Interner<T> interner) {
+      this.interner = interner;
+    }
+
+    short encode(T value) {
+      if (value == null) {
+        return -1;
+      }
+      return codes.computeIfAbsent(value, key -> {
+        if (values.size() > Short.MAX_VALUE) {
+          throw new IllegalStateException("More than " + Short.MAX_VALUE + " distinct values");
+        }
+        values.add(interner.intern(key));
+        return (short) (values.size() - 1);
+      });
+    }
+
+    ImmutableList<T> values() {
+      return ImmutableList.copyOf(values);
+    }
+  }
+}
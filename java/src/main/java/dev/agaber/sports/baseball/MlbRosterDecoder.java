@@ -0,0 +1,100 @@
+package dev.agaber.sports.baseball;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbPlayer;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes the {@code roster} array of a statsapi roster response as its bytes arrive, one
+ * {@link MlbPlayer} at a time.
+ *
+ * <p>Each buffer is copied into Jackson's non-blocking parser and released straight away. Only
+ * the tokens of the player currently being read are held on to, in a {@link TokenBuffer}, so the
+ * memory a response needs is one network buffer plus one player, however long the roster is.
+ * Everything outside the {@code roster} array is skipped. One instance decodes one response.
+ */
+final class MlbRosterDecoder implements TimedDecoder.ChunkDecoder<MlbPlayer> {
+  private final ObjectMapper objectMapper;
+  private final JsonParser parser;
+  private final ByteArrayFeeder feeder;
+  private int depth;
+  private String lastField;
+  private boolean inRoster;
+  private TokenBuffer player;
+
+  MlbRosterDecoder(ObjectMapper objectMapper) throws IOException {
+    this.objectMapper = objectMapper;
+    this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+    this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+  }
+
+  @Override
+  public List<MlbPlayer> feed(DataBuffer buffer) throws IOException {
+    byte[] bytes;
+    try {
+      bytes = new byte[buffer.readableByteCount()];
+      buffer.read(bytes);
+    } finally {
+      DataBufferUtils.release(buffer);
+    }
+    feeder.feedInput(bytes, 0, bytes.length);
+    return readPlayers();
+  }
+
+  @Override
+  public List<MlbPlayer> endOfInput() throws IOException {
+    feeder.endOfInput();
+    var players = readPlayers();
+    if (depth != 0) {
+      throw new JsonParseException(parser, "Roster response ended before the JSON was complete");
+    }
+    return players;
+  }
+
+  @Override
+  public void close() throws IOException {
+    parser.close();
+  }
+
+  /** Reads every token fed so far and returns the players completed by them. */
+  private List<MlbPlayer> readPlayers() throws IOException {
+    var players = new ArrayList<MlbPlayer>();
+    JsonToken token;
+    while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+      if (token.isStructStart()) {
+        depth++;
+      } else if (token.isStructEnd()) {
+        depth--;
+      }
+      if (player != null) {
+        // Depth 2 is back inside the roster array, so the player's object has just closed.
+        player.copyCurrentEvent(parser);
+        if (depth == 2) {
+          players.add(objectMapper.readValue(player.asParser(objectMapper), MlbPlayer.class));
+          player = null;
+        }
+      } else if (inRoster) {
+        if (token == JsonToken.START_OBJECT) {
+          player = new TokenBuffer(parser);
+          player.copyCurrentEvent(parser);
+        } else if (depth == 1) {
+          inRoster = false;
+        }
+      } else {
+        inRoster = token == JsonToken.START_ARRAY && depth == 2 && "roster".equals(lastField);
+        lastField = token == JsonToken.FIELD_NAME && depth == 1 ? parser.currentName() : null;
+      }
+    }
+    return players;
+  }
+}
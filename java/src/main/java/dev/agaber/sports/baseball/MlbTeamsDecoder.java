@@ -0,0 +1,100 @@
+package dev.agaber.sports.baseball;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.collect.ImmutableList;
+import dev.agaber.sports.baseball.BaseballTeamService.Id;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbTeam;
+
+import java.io.IOException;
+
+/**
+ * Decodes the {@code teams} array of a statsapi teams response straight from the token stream.
+ *
+ * <p>Elements are read one at a time. Only the fields that {@link MlbTeam} needs are materialized,
+ * everything else is skipped without being copied, and a record is only built when the element
+ * matches the given {@link TeamFilter}. This avoids building a {@code JsonNode} tree and a second
+ * full list of teams just to throw away all but one of them.
+ */
+final class MlbTeamsDecoder {
+  private MlbTeamsDecoder() {}
+
+  /** Predicate applied to each team while it is being parsed. */
+  @FunctionalInterface
+  interface TeamFilter {
+    TeamFilter ACTIVE = active -> active;
+    TeamFilter ALL = active -> true;
+
+    boolean matches(boolean active);
+  }
+
+  static ImmutableList<MlbTeam> decode(JsonParser parser, TeamFilter filter) throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      throw new JsonParseException(parser, "Expected teams response to be a JSON object");
+    }
+    var teams = ImmutableList.<MlbTeam>builder();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      var field = parser.currentName();
+      var token = parser.nextToken();
+      if (field.equals("teams") && token == JsonToken.START_ARRAY) {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+          var team = readTeam(parser, filter);
+          if (team != null) {
+            teams.add(team);
+          }
+        }
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return teams.build();
+  }
+
+  private static MlbTeam readTeam(JsonParser parser, TeamFilter filter) throws IOException {
+    var id = 0;
+    var active = false;
+    String name = null;
+    String locationName = null;
+    String teamName = null;
+    String abbreviation = null;
+    String teamCode = null;
+    Id venue = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      var field = parser.currentName();
+      parser.nextToken();
+      switch (field) {
+        case "id" -> id = parser.getValueAsInt();
+        case "active" -> active = parser.getValueAsBoolean();
+        case "name" -> name = parser.getValueAsString();
+        case "locationName" -> locationName = parser.getValueAsString();
+        case "teamName" -> teamName = parser.getValueAsString();
+        case "abbreviation" -> abbreviation = parser.getValueAsString();
+        case "teamCode" -> teamCode = parser.getValueAsString();
+        case "venue" -> venue = readId(parser);
+        default -> parser.skipChildren();
+      }
+    }
+    return filter.matches(active)
+        ? new MlbTeam(id, active, name, locationName, teamName, abbreviation, teamCode, venue)
+        : null;
+  }
+
+  private static Id readId(JsonParser parser) throws IOException {
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren();
+      return null;
+    }
+    var id = 0;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      var field = parser.currentName();
+      parser.nextToken();
+      if (field.equals("id")) {
+        id = parser.getValueAsInt();
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return new Id(id);
+  }
+}
@@ -0,0 +1,241 @@
+package dev.agaber.sports.baseball;
+
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static java.util.function.Function.identity;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbTeam;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbTeams;
+import dev.agaber.sports.baseball.MlbTeamsDecoder.TeamFilter;
+import dev.agaber.sports.http.Deadline;
+import dev.agaber.sports.http.RequestAttributes;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory copy of the {@code /api/v1/teams} directory, keyed by season.
+ *
+ * <p>The first lookup for a season loads it from statsapi. After that lookups are answered from
+ * memory. Once a season's copy is older than the refresh interval the stale copy keeps being served
+ * while a reload happens in the background, and every loaded season is also reloaded on a fixed
+ * schedule.
+ *
+ * <p>A load is shared by every caller that asks for the season while it is in flight, so it runs
+ * within {@code baseball.timeout} of its own rather than the first caller's deadline. Each caller
+ * still waits no longer than its own deadline, and a failed load is not kept: the next lookup tries
+ * again.
+ */
+@Component
+@Slf4j
+class TeamDirectory implements MeterBinder {
+  private final BaseballConfig config;
+  private final ObjectMapper objectMapper;
+  private final TimedDecoder timedDecoder;
+  private final WebClient webClient;
+  private final ConcurrentMap<Integer, Snapshot> snapshots = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Integer, Mono<Snapshot>> loading = new ConcurrentHashMap<>();
+  private volatile Disposable periodicRefresh;
+  private volatile Duration lastRefreshLatency = Duration.ZERO;
+
+  TeamDirectory(
+      BaseballConfig config,
+      ObjectMapper objectMapper,
+      TimedDecoder timedDecoder,
+      WebClient webClient) {
+    this.config = config;
+    this.objectMapper = objectMapper;
+    this.timedDecoder = timedDecoder;
+    this.webClient = webClient;
+  }
+
+  /** All teams for the season, served from memory once loaded. */
+  Mono<ImmutableList<MlbTeam>> teams(int season) {
+    return snapshot(season).map(Snapshot::teams);
+  }
+
+  /** Name lookup over the season's teams, built alongside them each time they are loaded. */
+  Mono<TeamSearchIndex> searchIndex(int season) {
+    return snapshot(season).map(Snapshot::searchIndex);
+  }
+
+  /**
+   * Looks up a team by ID in an already loaded season. Never goes to the network: an empty result
+   * only means the directory cannot answer, not that the team does not exist.
+   */
+  Optional<MlbTeam> cachedTeam(int season, int teamId) {
+    return Optional.ofNullable(snapshots.get(season))
+        .map(snapshot -> snapshot.teamsById().get(teamId));
+  }
+
+  /** Number of teams held across all loaded seasons. */
+  int size() {
+    return snapshots.values().stream().mapToInt(snapshot -> snapshot.teams().size()).sum();
+  }
+
+  /** Time since the season was last loaded, or empty if it never was. */
+  Optional<Duration> age(int season) {
+    return Optional.ofNullable(snapshots.get(season)).map(Snapshot::age);
+  }
+
+  /** How long the most recent load from statsapi took. */
+  Duration lastRefreshLatency() {
+    return lastRefreshLatency;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("baseball.team.directory.size", this, TeamDirectory::size)
+        .description("Teams held across all loaded seasons")
+        .register(registry);
+    Gauge.builder("baseball.team.directory.age", this, TeamDirectory::oldestAgeSeconds)
+        .description("Time since the least recently loaded season was loaded")
+        .baseUnit("seconds")
+        .register(registry);
+    Gauge.builder(
+            "baseball.team.directory.refresh.latency",
+            this,
+            directory -> directory.lastRefreshLatency().toNanos() / 1e9)
+        .description("How long the most recent load from statsapi took")
+        .baseUnit("seconds")
+        .register(registry);
+  }
+
+  @PreDestroy
+  void close() {
+    if (periodicRefresh != null) {
+      periodicRefresh.dispose();
+    }
+  }
+
+  private Mono<Snapshot> snapshot(int season) {
+    return Mono.defer(() -> {
+      var snapshot = snapshots.get(season);
+      if (snapshot == null) {
+        return Mono.deferContextual(context -> Deadline.current(context)
+            .map(deadline -> deadline.bound(refresh(season)))
+            .orElseGet(() -> refresh(season)));
+      }
+      if (snapshot.age().compareTo(config.getDirectoryRefreshInterval()) > 0) {
+        refresh(season).subscribe(
+            ignored -> {},
+            e -> log.warn("Background refresh of {} team directory failed", season, e));
+      }
+      return Mono.just(snapshot);
+    });
+  }
+
+  private Mono<Snapshot> refresh(int season) {
+    return loading.computeIfAbsent(season, key -> {
+      // Only this load may remove itself, not a newer one started after it finished.
+      var load = new AtomicReference<Mono<Snapshot>>();
+      load.set(Mono.defer(() -> {
+            var deadline = Deadline.after(config.getTimeout());
+            return deadline.bound(fetch(key))
+                .contextWrite(context -> context.put(Deadline.class, deadline));
+          })
+          .doOnNext(snapshot -> {
+            snapshots.put(key, snapshot);
+            schedulePeriodicRefresh();
+          })
+          .doFinally(signal -> loading.remove(key, load.get()))
+          // Never invalidated while in the map, but unlike cache() it does not replay an error.
+          .cacheInvalidateIf(snapshot -> false));
+      return load.get();
+    });
+  }
+
+  private Mono<Snapshot> fetch(int season) {
+    var uri = UriComponentsBuilder.newInstance()
+        .uri(URI.create(config.getStatsApiUrl()))
+        .path("/api/v1/teams")
+        .queryParam("season", season)
+        .queryParam("sportIds", 1)
+        .queryParam("fields", FieldProjection.of(MlbTeams.class))
+        .build(true)
+        .toUri();
+    return Mono.defer(() -> {
+      var start = System.nanoTime();
+      return webClient.get()
+          .uri(uri)
+          .attribute(RequestAttributes.ENDPOINT, TimedDecoder.TEAMS)
+          .exchangeToMono(response ->
+              response.statusCode() == HttpStatus.OK
+                  ? timedDecoder.decode(response, TimedDecoder.TEAMS, this::decode)
+                  : response.createError())
+          .map(teams -> {
+            var now = System.nanoTime();
+            lastRefreshLatency = Duration.ofNanos(now - start);
+            log.debug(
+                "Loaded {} teams for season {} in {} ms",
+                teams.size(),
+                season,
+                lastRefreshLatency.toMillis());
+            return new Snapshot(
+                teams,
+                teams.stream().collect(toImmutableMap(MlbTeam::id, identity(), (a, b) -> a)),
+                TeamSearchIndex.of(teams),
+                now);
+          });
+    });
+  }
+
+  private ImmutableList<MlbTeam> decode(InputStream body) throws IOException {
+    try (var parser = objectMapper.getFactory().createParser(body)) {
+      return MlbTeamsDecoder.decode(parser, TeamFilter.ALL);
+    }
+  }
+
+  private double oldestAgeSeconds() {
+    return snapshots.values().stream()
+        .mapToDouble(snapshot -> snapshot.age().toNanos() / 1e9)
+        .max()
+        .orElse(Double.NaN);
+  }
+
+  private synchronized void schedulePeriodicRefresh() {
+    var interval = config.getDirectoryRefreshInterval();
+    if (periodicRefresh != null || interval.isZero()) {
+      return;
+    }
+    periodicRefresh = Flux.interval(interval, interval)
+        .onBackpressureDrop()
+        .concatMap(tick -> Flux.fromIterable(snapshots.keySet())
+            .concatMap(season -> refresh(season)
+                .onErrorResume(e -> {
+                  log.warn("Scheduled refresh of {} team directory failed", season, e);
+                  return Mono.empty();
+                })))
+        .subscribe();
+  }
+
+  private record Snapshot(
+      ImmutableList<MlbTeam> teams,
+      ImmutableMap<Integer, MlbTeam> teamsById,
+      TeamSearchIndex searchIndex,
+      long loadedAtNanos) {
+    Duration age() {
+      return Duration.ofNanos(System.nanoTime() - loadedAtNanos);
+    }
+  }
+}
@@ -0,0 +1,288 @@
+package dev.agaber.sports.baseball;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.common.collect.ImmutableList;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbTeam;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+/**
+ * Team name lookup over a season's team directory, built once each time the directory is loaded.
+ *
+ * <p>Every team is indexed under its full name, team name, location name, abbreviation and team
+ * code, and under each word of those, all normalized to lower case letters and digits. A query is
+ * normalized the same way and each team gets the best of:
+ *
+ * <ul>
+ *   <li>an exact match on a field, scored by how specific the field is, from the full name down to
+ *       a single word;
+ *   <li>a prefix of a field, scored by how much of the field it covers;
+ *   <li>the share of the query's trigrams found in the team's fields, if at least half are.
+ * </ul>
+ *
+ * <p>The highest scoring team wins. When several teams share the top score the query is
+ * ambiguous: {@link #find} answers empty rather than guess, and {@link #search} lists every match
+ * best first, so "Sox" never silently picks one of the two Sox teams.
+ *
+ * <p>{@link #find} only allocates the few small arrays a lookup works in: the normalized query and
+ * a score and trigram count per team. Each team's {@code Optional} is built with the index. The
+ * arrays are not kept per thread, since under virtual threads every lookup runs on a new thread and
+ * would allocate them anyway.
+ */
+final class TeamSearchIndex {
+  private static final int NAME = 100;
+  private static final int ABBREVIATION = 95;
+  private static final int TEAM_CODE = 90;
+  private static final int TEAM_NAME = 85;
+  private static final int LOCATION_NAME = 80;
+  private static final int WORD = 70;
+  /** The most a prefix can score, approached as it covers more of the field. */
+  private static final int PREFIX = 60;
+  /** The most trigrams can score, when every trigram of the query is found. */
+  private static final int TRIGRAM = 50;
+
+  private final ImmutableList<MlbTeam> teams;
+  private final ImmutableList<Optional<MlbTeam>> found;
+
+  // Every normalized field and word, sorted, with the team and exact match score each stands for.
+  private final String[] terms;
+  private final int[] termTeams;
+  private final int[] termScores;
+
+  // Sorted trigram codes, and for each the teams whose fields contain it.
+  private final long[] trigrams;
+  private final int[][] trigramTeams;
+
+  private TeamSearchIndex(
+      ImmutableList<MlbTeam> teams,
+      List<Term> terms,
+      TreeMap<Long, TreeSet<Integer>> trigrams) {
+    this.teams = teams;
+    this.found = teams.stream().map(Optional::of).collect(toImmutableList());
+    this.terms = new String[terms.size()];
+    this.termTeams = new int[terms.size()];
+    this.termScores = new int[terms.size()];
+    for (var i = 0; i < terms.size(); i++) {
+      var term = terms.get(i);
+      this.terms[i] = term.text();
+      this.termTeams[i] = term.team();
+      this.termScores[i] = term.score();
+    }
+    this.trigrams = new long[trigrams.size()];
+    this.trigramTeams = new int[trigrams.size()][];
+    var i = 0;
+    for (var entry : trigrams.entrySet()) {
+      this.trigrams[i] = entry.getKey();
+      this.trigramTeams[i] = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+      i++;
+    }
+  }
+
+  static TeamSearchIndex of(List<MlbTeam> teams) {
+    var terms = new ArrayList<Term>();
+    var trigrams = new TreeMap<Long, TreeSet<Integer>>();
+    for (var team = 0; team < teams.size(); team++) {
+      var mlbTeam = teams.get(team);
+      addField(terms, trigrams, team, mlbTeam.name(), NAME);
+      addField(terms, trigrams, team, mlbTeam.abbreviation(), ABBREVIATION);
+      addField(terms, trigrams, team, mlbTeam.teamCode(), TEAM_CODE);
+      addField(terms, trigrams, team, mlbTeam.teamName(), TEAM_NAME);
+      addField(terms, trigrams, team, mlbTeam.locationName(), LOCATION_NAME);
+    }
+    terms.sort(Comparator.comparing(Term::text));
+    return new TeamSearchIndex(ImmutableList.copyOf(teams), terms, trigrams);
+  }
+
+  /** The team the query best matches, or empty if nothing matches or the best match is a tie. */
+  Optional<MlbTeam> find(String query) {
+    var scores = score(query).scores;
+    var best = -1;
+    var tied = false;
+    for (var team = 0; team < scores.length; team++) {
+      if (scores[team] == 0) {
+        continue;
+      }
+      if (best < 0 || scores[team] > scores[best]) {
+        best = team;
+        tied = false;
+      } else if (scores[team] == scores[best]) {
+        tied = true;
+      }
+    }
+    return best < 0 || tied ? Optional.empty() : found.get(best);
+  }
+
+  /** Every team the query matches, best match first and ties in name order. */
+  ImmutableList<MlbTeam> search(String query) {
+    var scores = score(query).scores;
+    return IntStream.range(0, scores.length)
+        .filter(team -> scores[team] > 0)
+        .boxed()
+        .sorted(Comparator.<Integer>comparingInt(team -> -scores[team])
+            .thenComparing(team -> teams.get(team).name()))
+        .map(teams::get)
+        .collect(toImmutableList());
+  }
+
+  private Scratch score(String query) {
+    var scratch = new Scratch(teams.size(), query.length());
+    var chars = scratch.query;
+    var length = normalize(query, chars);
+    var scores = scratch.scores;
+    if (length == 0) {
+      return scratch;
+    }
+
+    // Exact and prefix matches are one contiguous run of the sorted terms.
+    for (var i = lowerBound(chars, length); i < terms.length; i++) {
+      var term = terms[i];
+      if (!startsWith(term, chars, length)) {
+        break;
+      }
+      var score = term.length() == length
+          ? termScores[i]
+          : Math.max(1, PREFIX * length / term.length());
+      var team = termTeams[i];
+      scores[team] = Math.max(scores[team], score);
+    }
+
+    var queryTrigrams = length - 2;
+    if (queryTrigrams > 0) {
+      var hits = scratch.hits;
+      for (var i = 0; i < queryTrigrams; i++) {
+        var index = Arrays.binarySearch(trigrams, trigram(chars[i], chars[i + 1], chars[i + 2]));
+        if (index >= 0) {
+          for (var team : trigramTeams[index]) {
+            hits[team]++;
+          }
+        }
+      }
+      for (var team = 0; team < hits.length; team++) {
+        if (hits[team] * 2 >= queryTrigrams) {
+          var score = TRIGRAM * Math.min(hits[team], queryTrigrams) / queryTrigrams;
+          scores[team] = Math.max(scores[team], score);
+        }
+      }
+    }
+    return scratch;
+  }
+
+  /** Index of the first term not less than the query. */
+  private int lowerBound(char[] query, int length) {
+    var low = 0;
+    var high = terms.length;
+    while (low < high) {
+      var mid = (low + high) >>> 1;
+      if (compare(terms[mid], query, length) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /** Same order as {@link String#compareTo}, without turning the query into a string. */
+  private static int compare(String term, char[] query, int length) {
+    var common = Math.min(term.length(), length);
+    for (var i = 0; i < common; i++) {
+      var difference = term.charAt(i) - query[i];
+      if (difference != 0) {
+        return difference;
+      }
+    }
+    return term.length() - length;
+  }
+
+  private static boolean startsWith(String term, char[] query, int length) {
+    if (term.length() < length) {
+      return false;
+    }
+    for (var i = 0; i < length; i++) {
+      if (term.charAt(i) != query[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void addField(
+      List<Term> terms,
+      TreeMap<Long, TreeSet<Integer>> trigrams,
+      int team,
+      String field,
+      int score) {
+    if (field == null) {
+      return;
+    }
+    var normalized = normalize(field);
+    if (normalized.isEmpty()) {
+      return;
+    }
+    terms.add(new Term(normalized, team, score));
+    if (normalized.indexOf(' ') >= 0) {
+      for (var word : normalized.split(" ")) {
+        terms.add(new Term(word, team, WORD));
+      }
+    }
+    for (var i = 0; i + 2 < normalized.length(); i++) {
+      var code = trigram(normalized.charAt(i), normalized.charAt(i + 1), normalized.charAt(i + 2));
+      trigrams.computeIfAbsent(code, key -> new TreeSet<>()).add(team);
+    }
+  }
+
+  private static String normalize(String text) {
+    var buffer = new char[text.length()];
+    return new String(buffer, 0, normalize(text, buffer));
+  }
+
+  /**
+   * Writes the text lower cased into the buffer, with every run of anything other than letters and
+   * digits collapsed to a single space and none at either end, and returns its length. The buffer
+   * must be at least as long as the text.
+   */
+  private static int normalize(String text, char[] buffer) {
+    var length = 0;
+    var pendingSpace = false;
+    for (var i = 0; i < text.length(); i++) {
+      var c = text.charAt(i);
+      if (Character.isLetterOrDigit(c)) {
+        if (pendingSpace) {
+          buffer[length++] = ' ';
+          pendingSpace = false;
+        }
+        buffer[length++] = Character.toLowerCase(c);
+      } else if (length > 0) {
+        pendingSpace = true;
+      }
+    }
+    return length;
+  }
+
+  private static long trigram(char first, char second, char third) {
+    return (long) first << 32 | (long) second << 16 | third;
+  }
+
+  private record Term(String text, int team, int score) {}
+
+  /** The arrays one lookup works in. */
+  private static final class Scratch {
+    private final int[] scores;
+    private final int[] hits;
+    private final char[] query;
+
+    Scratch(int teams, int queryLength) {
+      scores = new int[teams];
+      hits = new int[teams];
+      query = new char[queryLength];
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package dev.agaber.sports.baseball;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decodes statsapi response bodies and records {@value #DECODE} per endpoint.
+ *
+ * <p>Either the body is joined first, or it is decoded chunk by chunk as it arrives. Either way the
+ * timer covers the decode alone and not the wait for bytes to arrive from the network.
+ */
+@Component
+class TimedDecoder {
+  static final String DECODE = "statsapi.client.decode";
+
+  /** Endpoint names, used both as the {@code endpoint} tag and the request attribute. */
+  static final String TEAMS = "teams";
+  static final String TEAM_BY_ID = "team-by-id";
+  static final String TEAM_HYDRATED = "team-hydrated";
+  static final String ROSTER = "roster";
+  static final String VENUE = "venue";
+
+  private final MeterRegistry registry;
+
+  TimedDecoder(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  <T> Mono<T> decode(ClientResponse response, String endpoint, BodyDecoder<T> decoder) {
+    var timer = timer(endpoint);
+    // bodyToMono(DataBuffer.class) joins the body while still honoring maxInMemorySize.
+    return response.bodyToMono(DataBuffer.class)
+        .flatMap(buffer -> Mono.fromCallable(() -> {
+          var start = System.nanoTime();
+          try (var body = buffer.asInputStream(true)) {
+            return decoder.decode(body);
+          } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+          }
+        }));
+  }
+
+  /**
+   * Decodes the body with a fresh decoder from {@code decoders} as its buffers arrive, without
+   * joining them. The time spent in the decoder is added up and recorded once per body.
+   */
+  <T> Flux<T> decodeChunks(
+      ClientResponse response,
+      String endpoint,
+      Callable<ChunkDecoder<T>> decoders) {
+    var timer = timer(endpoint);
+    return Flux.using(
+            decoders,
+            decoder -> {
+              var nanos = new AtomicLong();
+              return response.bodyToFlux(DataBuffer.class)
+                  .concatMapIterable(buffer -> timed(nanos, () -> decoder.feed(buffer)))
+                  .concatWith(Flux.defer(() ->
+                      Flux.fromIterable(timed(nanos, decoder::endOfInput))))
+                  .doOnComplete(() -> timer.record(nanos.get(), TimeUnit.NANOSECONDS));
+            },
+            decoder -> {
+              try {
+                decoder.close();
+              } catch (IOException e) {
+                throw Exceptions.propagate(e);
+              }
+            })
+        // Buffers that arrived but were never fed, e.g. because the subscriber cancelled.
+        .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+  }
+
+  private Timer timer(String endpoint) {
+    return Timer.builder(DECODE)
+        .description("Time to decode statsapi response bodies")
+        .tag("endpoint", endpoint)
+        .register(registry);
+  }
+
+  private static <T> List<T> timed(AtomicLong nanos, Callable<List<T>> decode) {
+    var start = System.nanoTime();
+    try {
+      return decode.call();
+    } catch (Exception e) {
+      throw Exceptions.propagate(e);
+    } finally {
+      nanos.addAndGet(System.nanoTime() - start);
+    }
+  }
+
+  @FunctionalInterface
+  interface BodyDecoder<T> {
+    T decode(InputStream body) throws IOException;
+  }
+
+  /**
+   * Turns a body into values as its buffers arrive. Each call returns the values completed by the
+   * bytes fed so far. {@link #feed(DataBuffer)} takes ownership of the buffer.
+   */
+  interface ChunkDecoder<T> extends AutoCloseable {
+    List<T> feed(DataBuffer buffer) throws IOException;
+
+    /** Called once the body is complete. Fails if it ended part way through a value. */
+    List<T> endOfInput() throws IOException;
+
+    @Override
+    void close() throws IOException;
+  }
+}
@@ -0,0 +1,117 @@
+package dev.agaber.sports.http;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of requests in flight to statsapi, and adapts that limit to how statsapi is
+ * coping, so that excess load is rejected straight away instead of queueing for a connection.
+ *
+ * <p>The limit follows additive increase, multiplicative decrease. A response slower than {@code
+ * latencyThreshold}, a {@code 429} or {@code 503}, or a failed exchange multiplies the limit by
+ * {@code backoffRatio}. Any other response raises it by one, but only while at least half of the
+ * limit is in use, so that a quiet period does not inflate it. A request over the limit fails
+ * with {@link ConcurrencyLimitExceededException} without being sent. A request counts as in
+ * flight until its response headers arrive.
+ */
+public final class AdaptiveConcurrencyLimitFilter implements ExchangeFilterFunction {
+  private final int minLimit;
+  private final int maxLimit;
+  private final double backoffRatio;
+  private final long latencyThresholdNanos;
+  private final AtomicLong rejected = new AtomicLong();
+  private double limit;
+  private int inFlight;
+
+  public AdaptiveConcurrencyLimitFilter(
+      int initialLimit,
+      int minLimit,
+      int maxLimit,
+      Duration latencyThreshold,
+      double backoffRatio) {
+    this.backoffRatio = backoffRatio;
+    this.latencyThresholdNanos = latencyThreshold.toNanos();
+    this.limit = initialLimit;
+    this.maxLimit = maxLimit;
+    this.minLimit = minLimit;
+  }
+
+  @Override
+  public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+    return Mono.defer(() -> {
+      var inFlightAtStart = tryAcquire();
+      if (inFlightAtStart < 0) {
+        rejected.incrementAndGet();
+        return Mono.error(new ConcurrencyLimitExceededException(limit()));
+      }
+      var start = System.nanoTime();
+      var released = new AtomicBoolean();
+      return next.exchange(request)
+          .doOnNext(response -> {
+            if (released.compareAndSet(false, true)) {
+              var latency = System.nanoTime() - start;
+              release(inFlightAtStart, latency > latencyThresholdNanos || isOverloaded(response));
+            }
+          })
+          .doOnError(e -> {
+            if (released.compareAndSet(false, true)) {
+              release(inFlightAtStart, true);
+            }
+          })
+          .doFinally(signal -> {
+            // Cancelled or completed without a response: free the slot without judging statsapi.
+            if (released.compareAndSet(false, true)) {
+              release();
+            }
+          });
+    });
+  }
+
+  /** The current limit on requests in flight. */
+  public synchronized int limit() {
+    return (int) limit;
+  }
+
+  public synchronized int inFlight() {
+    return inFlight;
+  }
+
+  /** Number of requests rejected because the limit was reached. */
+  public long rejected() {
+    return rejected.get();
+  }
+
+  /** Takes a slot and returns how many requests were already in flight, or -1 if none is free. */
+  private synchronized int tryAcquire() {
+    if (inFlight >= (int) limit) {
+      return -1;
+    }
+    return inFlight++;
+  }
+
+  private synchronized void release(int inFlightAtStart, boolean overloaded) {
+    inFlight--;
+    if (overloaded) {
+      limit = Math.max(minLimit, limit * backoffRatio);
+    } else if (inFlightAtStart * 2 >= (int) limit) {
+      limit = Math.min(maxLimit, limit + 1);
+    }
+  }
+
+  private synchronized void release() {
+    inFlight--;
+  }
+
+  private static boolean isOverloaded(ClientResponse response) {
+    return response.statusCode() == HttpStatus.TOO_MANY_REQUESTS
+        || response.statusCode() == HttpStatus.SERVICE_UNAVAILABLE;
+  }
+}
@@ -0,0 +1,55 @@
+package dev.agaber.sports.http;
+
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * A response whose body has been fully read into memory so it can be replayed to any number of
+ * subscribers. Each replay wraps the same byte array; nothing is copied.
+ */
+record BufferedResponse(
+    HttpStatusCode statusCode,
+    HttpHeaders headers,
+    byte[] body,
+    HttpRequest request,
+    ExchangeStrategies strategies) {
+  private static final byte[] EMPTY_BODY = new byte[0];
+
+  static Mono<BufferedResponse> read(ClientResponse response, int maxBufferSize) {
+    var headers = new HttpHeaders();
+    headers.addAll(response.headers().asHttpHeaders());
+    return DataBufferUtils.join(response.body(BodyExtractors.toDataBuffers()), maxBufferSize)
+        .map(buffer -> {
+          var bytes = new byte[buffer.readableByteCount()];
+          buffer.read(bytes);
+          DataBufferUtils.release(buffer);
+          return bytes;
+        })
+        .defaultIfEmpty(EMPTY_BODY)
+        .map(bytes -> new BufferedResponse(
+            response.statusCode(),
+            headers,
+            bytes,
+            response.request(),
+            response.strategies()));
+  }
+
+  ClientResponse toClientResponse() {
+    var response = ClientResponse.create(statusCode, strategies)
+        .headers(h -> h.addAll(headers))
+        .body(Flux.defer(() -> Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body))));
+    // Responses read back from disk have no originating request.
+    if (request != null) {
+      response.request(request);
+    }
+    return response.build();
+  }
+}
@@ -0,0 +1,110 @@
+package dev.agaber.sports.http;
+
+import dev.agaber.sports.http.CircuitBreakerExchangeFilter.State;
+
+/**
+ * The state of one endpoint's breaker: a window of the most recent call outcomes while closed, a
+ * timer while open, and a single probe while half open.
+ */
+final class CircuitBreaker {
+  /** What a caller was allowed to do. {@code null} from {@link #tryAcquire} means nothing. */
+  enum Permit { CALL, PROBE }
+
+  private final boolean[] failures;
+  private final int minCalls;
+  private final double failureRateThreshold;
+  private final long openNanos;
+  private State state = State.CLOSED;
+  private int next;
+  private int recorded;
+  private int failed;
+  private long openedAtNanos;
+  private boolean probing;
+
+  CircuitBreaker(int windowSize, int minCalls, double failureRateThreshold, long openNanos) {
+    this.failures = new boolean[windowSize];
+    this.failureRateThreshold = failureRateThreshold;
+    this.minCalls = minCalls;
+    this.openNanos = openNanos;
+  }
+
+  synchronized State state() {
+    return state;
+  }
+
+  /**
+   * Lets a call through while closed. Once the breaker has been open for long enough, lets exactly
+   * one probe through and holds everything else back until the probe's outcome is known.
+   */
+  synchronized Permit tryAcquire(long nowNanos) {
+    if (state == State.CLOSED) {
+      return Permit.CALL;
+    }
+    if (state == State.OPEN) {
+      if (nowNanos - openedAtNanos < openNanos) {
+        return null;
+      }
+      state = State.HALF_OPEN;
+      probing = false;
+    }
+    if (probing) {
+      return null;
+    }
+    probing = true;
+    return Permit.PROBE;
+  }
+
+  /**
+   * Records the outcome of a call and returns the state the breaker moved to, or {@code null} if
+   * it stayed where it was. Calls let through before the breaker opened no longer count.
+   */
+  synchronized State record(Permit permit, boolean failure, long nowNanos) {
+    if (permit == Permit.PROBE) {
+      probing = false;
+      if (state != State.HALF_OPEN) {
+        return null;
+      }
+      if (failure) {
+        return open(nowNanos);
+      }
+      reset();
+      state = State.CLOSED;
+      return state;
+    }
+    if (state != State.CLOSED) {
+      return null;
+    }
+    if (recorded == failures.length) {
+      failed -= failures[next] ? 1 : 0;
+    } else {
+      recorded++;
+    }
+    failures[next] = failure;
+    failed += failure ? 1 : 0;
+    next = (next + 1) % failures.length;
+    if (recorded >= minCalls && failed >= failureRateThreshold * recorded) {
+      return open(nowNanos);
+    }
+    return null;
+  }
+
+  /** Gives back a permit whose call ended without an outcome, e.g. because it was cancelled. */
+  synchronized void release(Permit permit) {
+    if (permit == Permit.PROBE) {
+      probing = false;
+    }
+  }
+
+  private State open(long nowNanos) {
+    reset();
+    state = State.OPEN;
+    openedAtNanos = nowNanos;
+    return state;
+  }
+
+  private void reset() {
+    next = 0;
+    recorded = 0;
+    failed = 0;
+  }
+}
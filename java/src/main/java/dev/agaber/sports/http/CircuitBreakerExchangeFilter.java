@@ -0,0 +1,146 @@
+package dev.agaber.sports.http;
+
+import dev.agaber.sports.http.CircuitBreaker.Permit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps one circuit breaker per endpoint, so that calls to an endpoint that statsapi is failing
+ * fail straight away with {@link CircuitBreakerOpenException} instead of holding a connection until
+ * they time out.
+ *
+ * <p>A call fails if it gets a {@code 5xx} or {@code 429}, if the exchange fails, or if it takes
+ * longer than {@code slowCallThreshold}, including a call that is cancelled after that long. Once
+ * at least {@code minCalls} of the last {@code windowSize} calls have finished and {@code
+ * failureRateThreshold} of them failed, the breaker opens for {@code openDuration}. After that one
+ * probe is let through: if it succeeds the breaker closes, otherwise it opens again. Requests
+ * rejected by a filter further down, such as the concurrency limiter, say nothing about statsapi
+ * and do not count.
+ */
+@Slf4j
+public final class CircuitBreakerExchangeFilter implements ExchangeFilterFunction {
+  public enum State { CLOSED, OPEN, HALF_OPEN }
+
+  private final int windowSize;
+  private final int minCalls;
+  private final double failureRateThreshold;
+  private final long openNanos;
+  private final long slowCallNanos;
+  private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+  private final Map<State, AtomicLong> transitions = new EnumMap<>(State.class);
+  private final AtomicLong rejected = new AtomicLong();
+
+  public CircuitBreakerExchangeFilter(
+      int windowSize,
+      int minCalls,
+      double failureRateThreshold,
+      Duration openDuration,
+      Duration slowCallThreshold) {
+    this.failureRateThreshold = failureRateThreshold;
+    this.minCalls = minCalls;
+    this.openNanos = openDuration.toNanos();
+    this.slowCallNanos = slowCallThreshold.toNanos();
+    this.windowSize = windowSize;
+    for (var state : State.values()) {
+      transitions.put(state, new AtomicLong());
+    }
+  }
+
+  @Override
+  public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+    var endpoint = RequestAttributes.endpoint(request);
+    return Mono.defer(() -> {
+      var breaker = breakers.computeIfAbsent(endpoint, key ->
+          new CircuitBreaker(windowSize, minCalls, failureRateThreshold, openNanos));
+      var start = System.nanoTime();
+      var permit = breaker.tryAcquire(start);
+      if (permit == null) {
+        rejected.incrementAndGet();
+        return Mono.error(new CircuitBreakerOpenException(endpoint));
+      }
+      if (permit == Permit.PROBE) {
+        transitioned(endpoint, State.HALF_OPEN);
+      }
+      var recorded = new AtomicBoolean();
+      return next.exchange(request)
+          .doOnNext(response -> {
+            if (recorded.compareAndSet(false, true)) {
+              record(endpoint, breaker, permit, start, isFailure(response));
+            }
+          })
+          .doOnError(e -> {
+            if (recorded.compareAndSet(false, true)) {
+              if (e instanceof ConcurrencyLimitExceededException) {
+                breaker.release(permit);
+              } else {
+                record(endpoint, breaker, permit, start, true);
+              }
+            }
+          })
+          .doFinally(signal -> {
+            if (recorded.compareAndSet(false, true)) {
+              if (System.nanoTime() - start > slowCallNanos) {
+                record(endpoint, breaker, permit, start, true);
+              } else {
+                breaker.release(permit);
+              }
+            }
+          });
+    });
+  }
+
+  /** Number of requests rejected because their endpoint's breaker was open. */
+  public long rejected() {
+    return rejected.get();
+  }
+
+  /** Number of times a breaker moved to {@code state}. */
+  public long transitions(State state) {
+    return transitions.get(state).get();
+  }
+
+  /** Number of endpoints whose breaker is not closed. */
+  public long notClosed() {
+    return breakers.values().stream().filter(breaker -> breaker.state() != State.CLOSED).count();
+  }
+
+  private void record(
+      String endpoint,
+      CircuitBreaker breaker,
+      Permit permit,
+      long start,
+      boolean failure) {
+    var now = System.nanoTime();
+    var state = breaker.record(permit, failure || now - start > slowCallNanos, now);
+    if (state != null) {
+      transitioned(endpoint, state);
+    }
+  }
+
+  private void transitioned(String endpoint, State state) {
+    transitions.get(state).incrementAndGet();
+    if (state == State.OPEN) {
+      log.warn("Circuit breaker for {} opened", endpoint);
+    } else {
+      log.info("Circuit breaker for {} is {}", endpoint, state);
+    }
+  }
+
+  private static boolean isFailure(ClientResponse response) {
+    return response.statusCode().is5xxServerError()
+        || response.statusCode() == HttpStatus.TOO_MANY_REQUESTS;
+  }
+}
@@ -0,0 +1,19 @@
+package dev.agaber.sports.http;
+
+/**
+ * Thrown instead of sending a request when {@link CircuitBreakerExchangeFilter} has stopped
+ * calling the request's endpoint because too many recent calls to it failed.
+ */
+public final class CircuitBreakerOpenException extends RuntimeException {
+  private final String endpoint;
+
+  public CircuitBreakerOpenException(String endpoint) {
+    super("Circuit breaker for statsapi endpoint " + endpoint + " is open");
+    this.endpoint = endpoint;
+  }
+
+  /** The endpoint whose breaker rejected the request. */
+  public String endpoint() {
+    return endpoint;
+  }
+}
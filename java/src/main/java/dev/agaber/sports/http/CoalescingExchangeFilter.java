@@ -0,0 +1,99 @@
+package dev.agaber.sports.http;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Single-flight deduplication of GET requests. While a GET for a URI is in flight, any other GET
+ * for the same URI subscribes to the same upstream exchange and receives a replay of the same
+ * response body instead of opening another request.
+ *
+ * <p>Entries only live for the duration of the exchange, so this is not a cache: a GET issued after
+ * the previous one completed goes upstream again. {@link RequestAttributes#STREAMED} requests are
+ * never coalesced, since sharing a response means holding all of it.
+ *
+ * <p>The shared exchange belongs to no caller in particular. It is sent as a copy of the first
+ * caller's request without the native request customizations that filters above this one make
+ * per caller, such as the {@link DeadlineExchangeFilter} response timeout, and without the
+ * {@link Deadline} in the first caller's context. Each caller's own deadline still bounds its wait
+ * for the shared response. The exchange is cancelled once every caller waiting on it has
+ * cancelled, and not before.
+ */
+public final class CoalescingExchangeFilter implements ExchangeFilterFunction {
+  private final ConcurrentMap<Key, Mono<BufferedResponse>> inFlight = new ConcurrentHashMap<>();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final int maxBufferSize;
+
+  public CoalescingExchangeFilter(int maxBufferSize) {
+    this.maxBufferSize = maxBufferSize;
+  }
+
+  @Override
+  public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+    if (!HttpMethod.GET.equals(request.method()) || RequestAttributes.isStreamed(request)) {
+      return next.exchange(request);
+    }
+    return Mono.defer(() -> {
+      var key = Key.of(request);
+      var flight = new AtomicReference<Mono<BufferedResponse>>();
+      flight.set(next.exchange(shared(request))
+          .flatMap(response -> BufferedResponse.read(response, maxBufferSize))
+          .contextWrite(context -> context.delete(Deadline.class))
+          .doFinally(signal -> inFlight.remove(key, flight.get()))
+          .flux()
+          .replay(1)
+          .refCount()
+          .singleOrEmpty());
+      var existing = inFlight.putIfAbsent(key, flight.get());
+      if (existing != null) {
+        hits.incrementAndGet();
+        return existing.map(BufferedResponse::toClientResponse);
+      }
+      misses.incrementAndGet();
+      return flight.get().map(BufferedResponse::toClientResponse);
+    });
+  }
+
+  /** Number of requests that joined an exchange already in flight. */
+  public long hits() {
+    return hits.get();
+  }
+
+  /** Number of requests that started a new upstream exchange. */
+  public long misses() {
+    return misses.get();
+  }
+
+  /** The request with its URL, method, headers, cookies, attributes and body, and nothing else. */
+  private static ClientRequest shared(ClientRequest request) {
+    return ClientRequest.create(request.method(), request.url())
+        .headers(headers -> headers.addAll(request.headers()))
+        .cookies(cookies -> cookies.addAll(request.cookies()))
+        .attributes(attributes -> attributes.putAll(request.attributes()))
+        .body(request.body())
+        .build();
+  }
+
+  /**
+   * Conditional requests are only coalesced with requests carrying the same validators, otherwise
+   * an unconditional caller could be handed a {@code 304 Not Modified}.
+   */
+  private record Key(URI uri, List<String> ifNoneMatch, long ifModifiedSince) {
+    static Key of(ClientRequest request) {
+      var headers = request.headers();
+      return new Key(request.url(), headers.getIfNoneMatch(), headers.getIfModifiedSince());
+    }
+  }
+}
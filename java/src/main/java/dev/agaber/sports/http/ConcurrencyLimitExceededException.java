@@ -0,0 +1,19 @@
+package dev.agaber.sports.http;
+
+/**
+ * Thrown instead of sending a request when {@link AdaptiveConcurrencyLimitFilter} already has as
+ * many requests in flight as its current limit allows.
+ */
+public final class ConcurrencyLimitExceededException extends RuntimeException {
+  private final int limit;
+
+  public ConcurrencyLimitExceededException(int limit) {
+    super("Too many statsapi requests in flight, limit is " + limit);
+    this.limit = limit;
+  }
+
+  /** The limit at the time the request was rejected. */
+  public int limit() {
+    return limit;
+  }
+}
@@ -0,0 +1,75 @@
+package dev.agaber.sports.http;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * A point in time by which a whole operation has to finish, carried in the Reactor context so that
+ * every call made on the operation's behalf gets only the time that is left.
+ *
+ * <p>Measured with {@link System#nanoTime()}, not a {@link java.time.Clock}, so that it is immune
+ * to wall clock adjustments and to the fixed clocks used in tests.
+ */
+public final class Deadline {
+  private final long deadlineNanos;
+
+  private Deadline(long deadlineNanos) {
+    this.deadlineNanos = deadlineNanos;
+  }
+
+  public static Deadline after(Duration timeout) {
+    return new Deadline(System.nanoTime() + timeout.toNanos());
+  }
+
+  /** The deadline of the operation that {@code context} belongs to, if it has one. */
+  public static Optional<Deadline> current(ContextView context) {
+    return context.getOrEmpty(Deadline.class);
+  }
+
+  /**
+   * For {@code contextWrite}: a deadline {@code timeout} after subscription, unless the context
+   * already has an earlier one.
+   */
+  public static Function<Context, Context> within(Duration timeout) {
+    return context -> {
+      var deadline = after(timeout);
+      var existing = current(context);
+      return existing.isPresent() && existing.get().deadlineNanos <= deadline.deadlineNanos
+          ? context
+          : context.put(Deadline.class, deadline);
+    };
+  }
+
+  /** Time left, negative once the deadline has passed. */
+  public Duration remaining() {
+    return Duration.ofNanos(deadlineNanos - System.nanoTime());
+  }
+
+  public boolean isExpired() {
+    return deadlineNanos - System.nanoTime() <= 0;
+  }
+
+  /**
+   * {@code mono}, cancelled with a {@link DeadlineExceededException} if it has not completed by
+   * the deadline. Fails without subscribing to {@code mono} if the deadline has already passed.
+   */
+  public <T> Mono<T> bound(Mono<T> mono) {
+    return Mono.defer(() -> {
+      var remaining = remaining();
+      if (remaining.isNegative() || remaining.isZero()) {
+        return Mono.error(exceeded());
+      }
+      return mono.timeout(remaining, Mono.error(this::exceeded));
+    });
+  }
+
+  private DeadlineExceededException exceeded() {
+    return new DeadlineExceededException(
+        "Deadline exceeded by " + remaining().negated().toMillis() + " ms");
+  }
+}
@@ -0,0 +1,8 @@
+package dev.agaber.sports.http;
+
+/** Thrown when work is abandoned because its {@link Deadline} has passed. */
+public final class DeadlineExceededException extends RuntimeException {
+  public DeadlineExceededException(String message) {
+    super(message);
+  }
+}
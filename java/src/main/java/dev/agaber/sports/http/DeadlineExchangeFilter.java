@@ -0,0 +1,40 @@
+package dev.agaber.sports.http;
+
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
+
+/**
+ * Gives each request only the time left before the {@link Deadline} in its Reactor context.
+ *
+ * <p>The remaining time becomes both the Reactor Netty response timeout, which bounds every read
+ * of the response, and a timeout on the exchange as a whole, which also covers waiting for a
+ * pooled connection. A request whose deadline has already passed is never sent. Requests without
+ * a deadline are passed through untouched. A GET that joins or starts a coalesced exchange loses
+ * the response timeout on the way, since the exchange is shared, but is still bounded as a whole.
+ */
+public final class DeadlineExchangeFilter implements ExchangeFilterFunction {
+  @Override
+  public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+    return Mono.deferContextual(context -> {
+      var deadline = Deadline.current(context);
+      if (deadline.isEmpty()) {
+        return next.exchange(request);
+      }
+      return deadline.get().bound(Mono.defer(() -> {
+        var remaining = deadline.get().remaining();
+        var bounded = ClientRequest.from(request)
+            .httpRequest(httpRequest -> {
+              if (httpRequest.getNativeRequest() instanceof HttpClientRequest nettyRequest) {
+                nettyRequest.responseTimeout(remaining);
+              }
+            })
+            .build();
+        return next.exchange(bounded);
+      }));
+    });
+  }
+}
@@ -0,0 +1,22 @@
+package dev.agaber.sports.http;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Thrown when opening a {@link DiskResponseStore} whose file is already held open by another
+ * store, usually in another JVM.
+ */
+public final class DiskCacheLockedException extends IOException {
+  private final Path path;
+
+  public DiskCacheLockedException(Path path) {
+    super("Disk cache " + path + " is in use by another process");
+    this.path = path;
+  }
+
+  /** The store file that is locked. */
+  public Path path() {
+    return path;
+  }
+}
@@ -0,0 +1,368 @@
+package dev.agaber.sports.http;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only, memory-mapped file of HTTP responses keyed by URI, so that separate JVM runs can
+ * share responses without going to the network.
+ *
+ * <p>Each record is laid out as {@code magic | payload length | crc32 | payload}, where the payload
+ * holds the expiry time, key, status, headers and body. The magic number is written last, so a
+ * record torn by a crash is either invisible or fails its checksum. On open the file is scanned from
+ * the start and everything after the first invalid record is discarded. A record whose key is not
+ * the one it was looked up by is treated as a miss and evicted.
+ *
+ * <p>Overwritten and expired records are reclaimed by compaction once the file is full. Compaction
+ * writes the live records to a new file and atomically renames it over the old one. If live records
+ * alone do not leave room for the new one, the oldest are evicted. If compaction fails the new
+ * record is dropped instead.
+ *
+ * <p>Only one store at a time may have the file open. Each holds an exclusive lock on a {@code
+ * .lock} file next to it for as long as it is open, rather than on the store file itself, which
+ * compaction replaces. Opening a store that is locked fails with {@link DiskCacheLockedException}.
+ */
+@Slf4j
+public final class DiskResponseStore implements Closeable {
+  private static final int MAGIC = 0x48545450;
+  private static final int RECORD_HEADER_BYTES = 12;
+
+  private final Clock clock;
+  private final long capacity;
+  private final Path path;
+  private final Map<String, Location> index = new HashMap<>();
+  private FileLock lock;
+  private FileChannel channel;
+  private MappedByteBuffer buffer;
+  private int writePosition;
+  private long compactions;
+  private long evictions;
+
+  private DiskResponseStore(Path path, long capacity, Clock clock) {
+    this.capacity = capacity;
+    this.clock = clock;
+    this.path = path;
+  }
+
+  /**
+   * Opens the store at {@code path}, creating it if needed, and recovers the index from the records
+   * already in the file.
+   */
+  public static DiskResponseStore open(Path path, long maxSizeBytes, Clock clock)
+      throws IOException {
+    if (maxSizeBytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Disk cache cannot be larger than 2GB: " + maxSizeBytes);
+    }
+    var parent = path.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    var store = new DiskResponseStore(path, maxSizeBytes, clock);
+    store.lock();
+    try {
+      store.map();
+      store.recover();
+    } catch (IOException | RuntimeException e) {
+      store.lock.channel().close();
+      throw e;
+    }
+    return store;
+  }
+
+  /** The unexpired response stored for {@code key}, if any. */
+  public synchronized Optional<StoredResponse> get(String key) {
+    var location = index.get(key);
+    if (location == null || !channel.isOpen()) {
+      return Optional.empty();
+    }
+    if (!clock.instant().isBefore(location.expiresAt())) {
+      index.remove(key);
+      return Optional.empty();
+    }
+    var response = readPayload(key, location.offset());
+    if (response.isEmpty()) {
+      log.warn("Disk cache {} has another key's record for {}, evicting it", path, key);
+      index.remove(key);
+      evictions++;
+    }
+    return response;
+  }
+
+  /**
+   * Appends a response. Records that cannot fit even in an empty store, or that the store failed
+   * to make room for, are dropped since this is only a cache.
+   */
+  public synchronized void put(String key, StoredResponse response, Instant expiresAt) {
+    if (!channel.isOpen()) {
+      return;
+    }
+    var payload = encode(key, response, expiresAt);
+    var recordBytes = RECORD_HEADER_BYTES + payload.remaining();
+    if (recordBytes > capacity) {
+      log.debug("Response for {} is too large for the disk cache ({} bytes)", key, recordBytes);
+      return;
+    }
+    if (writePosition + recordBytes > capacity && !compact(recordBytes)) {
+      return;
+    }
+    var offset = writePosition;
+    var crc = new CRC32();
+    crc.update(payload.duplicate());
+    buffer.put(offset + RECORD_HEADER_BYTES, payload, 0, payload.remaining());
+    buffer.putInt(offset + 4, payload.remaining());
+    buffer.putInt(offset + 8, (int) crc.getValue());
+    // Written last so that a partially written record is never mistaken for a complete one.
+    buffer.putInt(offset, MAGIC);
+    writePosition += recordBytes;
+    index.put(key, new Location(offset, expiresAt));
+  }
+
+  public synchronized int size() {
+    return index.size();
+  }
+
+  public synchronized long compactions() {
+    return compactions;
+  }
+
+  public synchronized long evictions() {
+    return evictions;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      if (channel.isOpen()) {
+        buffer.force();
+        channel.close();
+      }
+    } finally {
+      lock.channel().close();
+    }
+  }
+
+  private void lock() throws IOException {
+    var lockPath = path.resolveSibling(path.getFileName() + ".lock");
+    var lockChannel = FileChannel.open(
+        lockPath,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE);
+    try {
+      lock = lockChannel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      // Held by another store in this JVM.
+      lock = null;
+    } catch (IOException e) {
+      lockChannel.close();
+      throw e;
+    }
+    if (lock == null) {
+      lockChannel.close();
+      throw new DiskCacheLockedException(path);
+    }
+  }
+
+  private void map() throws IOException {
+    var opened = FileChannel.open(
+        path,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    try {
+      buffer = opened.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    } catch (IOException e) {
+      opened.close();
+      throw e;
+    }
+    channel = opened;
+  }
+
+  private void recover() {
+    var position = 0;
+    var recovered = 0;
+    while (position + RECORD_HEADER_BYTES <= capacity && buffer.getInt(position) == MAGIC) {
+      var length = buffer.getInt(position + 4);
+      if (length < 0 || position + RECORD_HEADER_BYTES + (long) length > capacity) {
+        break;
+      }
+      var crc = new CRC32();
+      crc.update(buffer.slice(position + RECORD_HEADER_BYTES, length));
+      if ((int) crc.getValue() != buffer.getInt(position + 8)) {
+        log.warn("Disk cache {} has a corrupt record at offset {}, truncating", path, position);
+        break;
+      }
+      var payloadOffset = position + RECORD_HEADER_BYTES;
+      var expiresAt = Instant.ofEpochMilli(buffer.getLong(payloadOffset));
+      index.put(readString(payloadOffset + 8), new Location(position, expiresAt));
+      position += RECORD_HEADER_BYTES + length;
+      recovered++;
+    }
+    writePosition = position;
+    // Make sure whatever follows the last good record is never read back as a record.
+    if (writePosition + 4 <= capacity) {
+      buffer.putInt(writePosition, 0);
+    }
+    log.debug("Recovered {} records ({} live) from disk cache {}", recovered, index.size(), path);
+  }
+
+  /**
+   * Makes room for {@code bytesNeeded} and returns whether it could. On failure the old file and
+   * index are kept, so the store goes on serving what it had.
+   */
+  private boolean compact(int bytesNeeded) {
+    var now = clock.instant();
+    index.values().removeIf(location -> !now.isBefore(location.expiresAt()));
+    var live = index.entrySet().stream()
+        .map(entry -> Map.entry(entry.getKey(), entry.getValue()))
+        .sorted(Comparator.comparingInt(entry -> entry.getValue().offset()))
+        .toList();
+    long liveBytes = live.stream().mapToLong(entry -> recordLength(entry.getValue())).sum();
+    var firstKept = 0;
+    while (liveBytes + bytesNeeded > capacity && firstKept < live.size()) {
+      liveBytes -= recordLength(live.get(firstKept).getValue());
+      index.remove(live.get(firstKept).getKey());
+      firstKept++;
+      evictions++;
+    }
+
+    var compactedPath = path.resolveSibling(path.getFileName() + ".compact");
+    var moved = new HashMap<String, Location>();
+    var position = 0;
+    try {
+      Files.deleteIfExists(compactedPath);
+      var compacted = new DiskResponseStore(compactedPath, capacity, clock);
+      compacted.map();
+      try {
+        for (var entry : live.subList(firstKept, live.size())) {
+          var location = entry.getValue();
+          var length = recordLength(location);
+          compacted.buffer.put(position, buffer, location.offset(), length);
+          moved.put(entry.getKey(), new Location(position, location.expiresAt()));
+          position += length;
+        }
+        if (position + 4 <= capacity) {
+          compacted.buffer.putInt(position, 0);
+        }
+        compacted.buffer.force();
+      } finally {
+        compacted.channel.close();
+      }
+    } catch (IOException e) {
+      log.warn("Could not compact disk cache {}, dropping the new record", path, e);
+      return false;
+    }
+
+    var replaced = false;
+    try {
+      buffer.force();
+      channel.close();
+      Files.move(
+          compactedPath,
+          path,
+          StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+      index.putAll(moved);
+      writePosition = position;
+      compactions++;
+      replaced = true;
+    } catch (IOException e) {
+      log.warn("Could not replace disk cache {} with its compacted copy", path, e);
+    }
+    // Whether or not the move went through, the index now matches whatever file is at path.
+    try {
+      map();
+    } catch (IOException e) {
+      // The channel stays closed, which turns get and put into no-ops.
+      log.warn("Could not reopen disk cache {}, disabling it", path, e);
+      index.clear();
+      return false;
+    }
+    return replaced;
+  }
+
+  private int recordLength(Location location) {
+    return RECORD_HEADER_BYTES + buffer.getInt(location.offset() + 4);
+  }
+
+  /** The response in the record at {@code offset}, or empty if that record is for another key. */
+  private Optional<StoredResponse> readPayload(String key, int offset) {
+    var payload = buffer.slice(
+        offset + RECORD_HEADER_BYTES,
+        buffer.getInt(offset + 4));
+    payload.getLong();
+    if (!key.equals(readString(payload))) {
+      return Optional.empty();
+    }
+    var status = payload.getInt();
+    var headers = new HttpHeaders();
+    var headerCount = payload.getInt();
+    for (var i = 0; i < headerCount; i++) {
+      headers.add(readString(payload), readString(payload));
+    }
+    var body = new byte[payload.getInt()];
+    payload.get(body);
+    return Optional.of(new StoredResponse(status, headers, body));
+  }
+
+  private String readString(int offset) {
+    var length = buffer.getInt(offset);
+    var bytes = new byte[length];
+    buffer.get(offset + 4, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static String readString(ByteBuffer payload) {
+    var bytes = new byte[payload.getInt()];
+    payload.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static ByteBuffer encode(String key, StoredResponse response, Instant expiresAt) {
+    var keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    var headerBytes = new ArrayList<byte[]>();
+    response.headers().forEach((name, values) -> {
+      for (var value : values) {
+        headerBytes.add(name.getBytes(StandardCharsets.UTF_8));
+        headerBytes.add(value.getBytes(StandardCharsets.UTF_8));
+      }
+    });
+    var size = 8 + 4 + keyBytes.length + 4 + 4 + 4 + response.body().length
+        + headerBytes.stream().mapToInt(bytes -> 4 + bytes.length).sum();
+    var payload = ByteBuffer.allocate(size)
+        .putLong(expiresAt.toEpochMilli())
+        .putInt(keyBytes.length)
+        .put(keyBytes)
+        .putInt(response.status())
+        .putInt(headerBytes.size() / 2);
+    for (var bytes : headerBytes) {
+      payload.putInt(bytes.length).put(bytes);
+    }
+    return payload.putInt(response.body().length).put(response.body()).flip();
+  }
+
+  /** A response as stored on disk. */
+  public record StoredResponse(int status, HttpHeaders headers, byte[] body) {}
+
+  private record Location(int offset, Instant expiresAt) {}
+}
@@ -0,0 +1,149 @@
+package dev.agaber.sports.http;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hedges GET requests to the given endpoints. If the response has not started arriving after the
+ * endpoint's recent latency percentile, the same request is sent again on another connection, the
+ * first response wins and the other exchange is cancelled.
+ *
+ * <p>Hedges are paid for from a {@link RequestBudget}, so a slow upstream sees at most a fixed
+ * fraction of extra load. Until an endpoint has enough samples, {@code minDelay} is used as its
+ * delay, and the delay is never shorter than that. A primary cancelled because its hedge won still
+ * counts towards the percentile, as at least as slow as it had been when it was cancelled.
+ * Otherwise only winners would be sampled and the delay would keep shrinking. A hedge that loses is
+ * not sampled: it was sent late, so its time says nothing about how long the request takes.
+ */
+public final class HedgingExchangeFilter implements ExchangeFilterFunction {
+  private final Set<String> endpoints;
+  private final double percentile;
+  private final Duration minDelay;
+  private final RequestBudget budget;
+  private final ConcurrentMap<String, LatencyTracker> latencies = new ConcurrentHashMap<>();
+  private final AtomicLong hedges = new AtomicLong();
+  private final AtomicLong hedgeWins = new AtomicLong();
+
+  public HedgingExchangeFilter(
+      Set<String> endpoints,
+      double percentile,
+      Duration minDelay,
+      RequestBudget budget) {
+    this.budget = budget;
+    this.endpoints = Set.copyOf(endpoints);
+    this.minDelay = minDelay;
+    this.percentile = percentile;
+  }
+
+  @Override
+  public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+    var endpoint = RequestAttributes.endpoint(request);
+    if (!HttpMethod.GET.equals(request.method()) || !endpoints.contains(endpoint)) {
+      return next.exchange(request);
+    }
+    return Mono.defer(() -> {
+      var latency = latencies.computeIfAbsent(endpoint, key -> new LatencyTracker());
+      var delay = delay(latency);
+      budget.deposit();
+      var primaryFailed = Sinks.<Boolean>one();
+      var primary = timed(next.exchange(request), latency, true)
+          .doOnError(e -> primaryFailed.tryEmitValue(true));
+      var hedge = Mono.delay(delay)
+          .takeUntilOther(primaryFailed.asMono())
+          .filter(tick -> budget.tryWithdraw())
+          .flatMap(tick -> {
+            hedges.incrementAndGet();
+            return timed(next.exchange(request), latency, false)
+                .doOnNext(response -> hedgeWins.incrementAndGet());
+          });
+      // firstWithValue cancels whichever exchange loses, and only fails once both have. A primary
+      // that fails before the hedge is sent stops the hedge from being sent at all.
+      // A loser whose response arrives as it is being cancelled has that response discarded, and
+      // its connection is only given back once the body is released.
+      return Mono.firstWithValue(primary, hedge)
+          .onErrorMap(HedgingExchangeFilter::firstError)
+          .doOnDiscard(ClientResponse.class, response -> response.releaseBody().subscribe());
+    });
+  }
+
+  /** Number of duplicate requests sent. */
+  public long hedges() {
+    return hedges.get();
+  }
+
+  /** Number of duplicate requests that answered before the original. */
+  public long hedgeWins() {
+    return hedgeWins.get();
+  }
+
+  public RequestBudget budget() {
+    return budget;
+  }
+
+  /** How long requests to {@code endpoint} wait before they are hedged. */
+  Duration delay(String endpoint) {
+    var latency = latencies.get(endpoint);
+    return latency == null ? minDelay : delay(latency);
+  }
+
+  private Duration delay(LatencyTracker latency) {
+    return max(minDelay, latency.percentile(percentile, minDelay));
+  }
+
+  /**
+   * Records when the response started arriving, or, if {@code sampleCancel}, when the exchange was
+   * cancelled before that.
+   */
+  private static Mono<ClientResponse> timed(
+      Mono<ClientResponse> exchange,
+      LatencyTracker latency,
+      boolean sampleCancel) {
+    return Mono.defer(() -> {
+      var start = System.nanoTime();
+      var recorded = new AtomicBoolean();
+      return exchange
+          .doOnNext(response -> {
+            if (recorded.compareAndSet(false, true)) {
+              latency.record(System.nanoTime() - start);
+            }
+          })
+          .doOnCancel(() -> {
+            if (sampleCancel && recorded.compareAndSet(false, true)) {
+              latency.record(System.nanoTime() - start);
+            }
+          });
+    });
+  }
+
+  /** firstWithValue reports failure as a {@link NoSuchElementException} wrapping each error. */
+  private static Throwable firstError(Throwable e) {
+    if (!(e instanceof NoSuchElementException)) {
+      return e;
+    }
+    return Exceptions.unwrapMultiple(e.getCause()).stream()
+        .filter(Objects::nonNull)
+        .findFirst()
+        .or(() -> Arrays.stream(e.getSuppressed()).findFirst())
+        .orElse(e);
+  }
+
+  private static Duration max(Duration a, Duration b) {
+    return a.compareTo(b) >= 0 ? a : b;
+  }
+}
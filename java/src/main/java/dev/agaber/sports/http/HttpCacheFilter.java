@@ -0,0 +1,276 @@
+package dev.agaber.sports.http;
+
+import com.google.common.base.Splitter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A private HTTP cache for GET responses, following the freshness and validation rules of RFC 9111.
+ *
+ * <p>Responses are kept while fresh according to {@code Cache-Control: max-age}, less any
+ * {@code Age} they already had upstream, or {@code Expires}. A response with {@code Vary} is only
+ * served to requests that send the same values for the varied headers, and {@code Vary: *} is
+ * never kept. Once stale, the next request is sent with {@code If-None-Match} and/or
+ * {@code If-Modified-Since}, and a {@code 304 Not Modified} reply is answered with the cached body.
+ * {@code no-store} responses are never kept and {@code no-cache} responses are revalidated on every
+ * use. Entries are evicted least recently used first once the cached bodies and headers exceed the
+ * byte budget. {@link RequestAttributes#STREAMED} requests are neither served nor cached.
+ */
+public final class HttpCacheFilter implements ExchangeFilterFunction {
+  private static final Splitter DIRECTIVE_SPLITTER =
+      Splitter.on(',').trimResults().omitEmptyStrings();
+
+  private final Clock clock;
+  private final int maxBufferSize;
+  private final long maxSizeBytes;
+  private final LinkedHashMap<URI, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong revalidations = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private long sizeBytes;
+
+  public HttpCacheFilter(Clock clock, long maxSizeBytes, int maxBufferSize) {
+    this.clock = clock;
+    this.maxBufferSize = maxBufferSize;
+    this.maxSizeBytes = maxSizeBytes;
+  }
+
+  @Override
+  public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+    if (!HttpMethod.GET.equals(request.method()) || RequestAttributes.isStreamed(request)) {
+      return next.exchange(request);
+    }
+    return Mono.defer(() -> {
+      var uri = request.url();
+      var stored = get(uri);
+      var cached = stored != null && stored.matches(request.headers()) ? stored : null;
+      if (cached != null && cached.isFresh(clock.instant())) {
+        hits.incrementAndGet();
+        return Mono.just(cached.response().toClientResponse());
+      }
+      var outgoing = cached == null ? request : withValidators(request, cached);
+      return next.exchange(outgoing).flatMap(response -> {
+        if (cached != null && response.statusCode() == HttpStatus.NOT_MODIFIED) {
+          revalidations.incrementAndGet();
+          var notModifiedHeaders = response.headers().asHttpHeaders();
+          return response.releaseBody().then(Mono.fromCallable(() -> {
+            var refreshed = cached.revalidate(notModifiedHeaders, clock.instant());
+            put(uri, refreshed);
+            return refreshed.response().toClientResponse();
+          }));
+        }
+        misses.incrementAndGet();
+        if (response.statusCode() != HttpStatus.OK
+            || !isStorable(response.headers().asHttpHeaders())) {
+          return Mono.just(response);
+        }
+        return BufferedResponse.read(response, maxBufferSize).map(buffered -> {
+          put(uri, Entry.of(buffered, request.headers(), clock.instant()));
+          return buffered.toClientResponse();
+        });
+      });
+    });
+  }
+
+  public long hits() {
+    return hits.get();
+  }
+
+  public long misses() {
+    return misses.get();
+  }
+
+  /** Number of stale entries that upstream confirmed with {@code 304 Not Modified}. */
+  public long revalidations() {
+    return revalidations.get();
+  }
+
+  public long evictions() {
+    return evictions.get();
+  }
+
+  /** Bytes currently held by cached bodies and headers. */
+  public synchronized long sizeBytes() {
+    return sizeBytes;
+  }
+
+  private synchronized Entry get(URI uri) {
+    return entries.get(uri);
+  }
+
+  private synchronized void put(URI uri, Entry entry) {
+    var previous = entries.put(uri, entry);
+    if (previous != null) {
+      sizeBytes -= previous.sizeBytes();
+    }
+    sizeBytes += entry.sizeBytes();
+    // Eldest first. The entry just written is the most recently used so it goes last.
+    var iterator = entries.values().iterator();
+    while (sizeBytes > maxSizeBytes && iterator.hasNext()) {
+      sizeBytes -= iterator.next().sizeBytes();
+      iterator.remove();
+      evictions.incrementAndGet();
+    }
+  }
+
+  private static ClientRequest withValidators(ClientRequest request, Entry cached) {
+    var headers = cached.response().headers();
+    return ClientRequest.from(request)
+        .headers(h -> {
+          if (headers.getETag() != null) {
+            h.setIfNoneMatch(headers.getETag());
+          }
+          if (headers.getLastModified() >= 0) {
+            h.setIfModifiedSince(headers.getLastModified());
+          }
+        })
+        .build();
+  }
+
+  private static boolean isStorable(HttpHeaders headers) {
+    var directives = CacheDirectives.parse(headers);
+    if (directives.noStore() || headers.getVary().contains("*")) {
+      return false;
+    }
+    // Without freshness information or a validator the entry could never be used.
+    return directives.maxAgeSeconds() >= 0
+        || headers.getExpires() >= 0
+        || headers.getETag() != null
+        || headers.getLastModified() >= 0;
+  }
+
+  private static Instant freshUntil(HttpHeaders headers, Instant now) {
+    var directives = CacheDirectives.parse(headers);
+    if (directives.noCache()) {
+      return now;
+    }
+    if (directives.maxAgeSeconds() >= 0) {
+      return now.plusSeconds(directives.maxAgeSeconds() - ageSeconds(headers));
+    }
+    if (headers.getExpires() >= 0) {
+      return Instant.ofEpochMilli(headers.getExpires());
+    }
+    return now;
+  }
+
+  /** How long the response had already been cached upstream, from its {@code Age} header. */
+  private static long ageSeconds(HttpHeaders headers) {
+    var age = headers.getFirst(HttpHeaders.AGE);
+    if (age == null) {
+      return 0;
+    }
+    try {
+      return Math.max(0, Long.parseLong(age.strip()));
+    } catch (NumberFormatException e) {
+      // Per RFC 9111 an invalid Age is ignored.
+      return 0;
+    }
+  }
+
+  /**
+   * A cached response and when it goes stale.
+   *
+   * @param varied the request's values for each header named in the response's {@code Vary}, which
+   *     a later request has to send too for the entry to answer it
+   */
+  private record Entry(
+      BufferedResponse response,
+      Map<String, List<String>> varied,
+      Instant freshUntil,
+      long sizeBytes) {
+    static Entry of(BufferedResponse response, HttpHeaders requestHeaders, Instant now) {
+      var varied = new HashMap<String, List<String>>();
+      for (var name : response.headers().getVary()) {
+        varied.put(name.toLowerCase(Locale.ROOT), List.copyOf(requestHeaders.getOrEmpty(name)));
+      }
+      return sized(response, Map.copyOf(varied), now);
+    }
+
+    private static Entry sized(
+        BufferedResponse response,
+        Map<String, List<String>> varied,
+        Instant now) {
+      var headerBytes = response.headers().entrySet().stream()
+          .mapToLong(header -> header.getKey().length()
+              + header.getValue().stream().mapToLong(String::length).sum())
+          .sum();
+      return new Entry(
+          response,
+          varied,
+          freshUntil(response.headers(), now),
+          response.body().length + headerBytes);
+    }
+
+    boolean matches(HttpHeaders requestHeaders) {
+      return varied.entrySet().stream()
+          .allMatch(header -> header.getValue().equals(requestHeaders.getOrEmpty(header.getKey())));
+    }
+
+    boolean isFresh(Instant now) {
+      return now.isBefore(freshUntil);
+    }
+
+    /** Applies the headers of a 304 reply, which may update freshness and validators. */
+    Entry revalidate(HttpHeaders notModifiedHeaders, Instant now) {
+      var headers = new HttpHeaders();
+      headers.addAll(response.headers());
+      notModifiedHeaders.forEach((name, values) -> {
+        if (!name.equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH)) {
+          headers.put(name, values);
+        }
+      });
+      return sized(
+          new BufferedResponse(
+              response.statusCode(),
+              headers,
+              response.body(),
+              response.request(),
+              response.strategies()),
+          varied,
+          now);
+    }
+  }
+
+  private record CacheDirectives(boolean noCache, boolean noStore, long maxAgeSeconds) {
+    static CacheDirectives parse(HttpHeaders headers) {
+      var noCache = false;
+      var noStore = false;
+      var maxAgeSeconds = -1L;
+      var cacheControl = headers.getCacheControl();
+      if (cacheControl != null) {
+        for (var directive : DIRECTIVE_SPLITTER.split(cacheControl.toLowerCase(Locale.ROOT))) {
+          if (directive.equals("no-cache")) {
+            noCache = true;
+          } else if (directive.equals("no-store")) {
+            noStore = true;
+          } else if (directive.startsWith("max-age=")) {
+            try {
+              maxAgeSeconds = Long.parseLong(directive.substring("max-age=".length()));
+            } catch (NumberFormatException e) {
+              // Per RFC 9111 an invalid max-age is treated as stale.
+              maxAgeSeconds = 0;
+            }
+          }
+        }
+      }
+      return new CacheDirectives(noCache, noStore, maxAgeSeconds);
+    }
+  }
+}
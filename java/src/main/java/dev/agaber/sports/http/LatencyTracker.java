@@ -0,0 +1,29 @@
+package dev.agaber.sports.http;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/** A percentile over the most recent latencies observed for one endpoint. */
+final class LatencyTracker {
+  private static final int WINDOW = 128;
+  private static final int MIN_SAMPLES = 16;
+
+  private final long[] samples = new long[WINDOW];
+  private long count;
+
+  synchronized void record(long latencyNanos) {
+    samples[(int) (count++ % WINDOW)] = latencyNanos;
+  }
+
+  /** The given percentile, between 0 and 1, or {@code fallback} until there are enough samples. */
+  synchronized Duration percentile(double percentile, Duration fallback) {
+    if (count < MIN_SAMPLES) {
+      return fallback;
+    }
+    var size = (int) Math.min(count, WINDOW);
+    var sorted = Arrays.copyOf(samples, size);
+    Arrays.sort(sorted);
+    var index = Math.min(size - 1, (int) Math.ceil(percentile * size) - 1);
+    return Duration.ofNanos(sorted[Math.max(0, index)]);
+  }
+}
@@ -0,0 +1,271 @@
+package dev.agaber.sports.http;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.common.collect.ImmutableList;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Spreads requests over several mirrors of statsapi, such as regional caching proxies, by
+ * rewriting each request's scheme, host and port to those of the mirror it picks. A mirror's base
+ * URL may also have a path, which is put in front of the request's.
+ *
+ * <p>Each request picks two healthy mirrors at random and goes to the cheaper one, where cost is a
+ * mirror's latency times one more than its requests in flight. Latency is a peak weighted moving
+ * average: a slower response raises it straight away, faster ones bring it down gradually, and it
+ * also decays towards zero by {@code decay} while a mirror gets no responses, so that a mirror
+ * that was slow once is tried again sooner or later. Latency is floored at a millisecond, so that
+ * mirrors with no responses yet are told apart by their requests in flight. Traffic drifts to the
+ * fastest mirrors without starving the others of the samples that would show they recovered.
+ *
+ * <p>A {@code 5xx}, a {@code 429} or a failed exchange is a failure. After {@code ejectAfter}
+ * failures in a row a mirror is ejected for {@code ejectDuration}. After that one request at a
+ * time is sent to it as a probe: if the probe succeeds the mirror takes traffic again, otherwise it
+ * is ejected for another {@code ejectDuration}. If every mirror is ejected, requests go to the one
+ * due back soonest rather than nowhere.
+ */
+@Slf4j
+public final class LoadBalancingExchangeFilter implements ExchangeFilterFunction {
+  private static final long MIN_LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final ImmutableList<Mirror> mirrors;
+  private final int ejectAfter;
+  private final long ejectNanos;
+
+  public LoadBalancingExchangeFilter(
+      List<URI> baseUrls,
+      Duration decay,
+      int ejectAfter,
+      Duration ejectDuration) {
+    this.ejectAfter = ejectAfter;
+    this.ejectNanos = ejectDuration.toNanos();
+    this.mirrors = baseUrls.stream()
+        .map(baseUrl -> new Mirror(baseUrl, decay.toNanos()))
+        .collect(toImmutableList());
+  }
+
+  @Override
+  public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+    return Mono.defer(() -> {
+      var start = System.nanoTime();
+      var pick = pick(start);
+      var mirror = pick.mirror();
+      mirror.start();
+      var recorded = new AtomicBoolean();
+      var rewritten = ClientRequest.from(request)
+          .url(rewrite(request.url(), mirror.baseUrl()))
+          .build();
+      return next.exchange(rewritten)
+          .doOnNext(response -> {
+            if (recorded.compareAndSet(false, true)) {
+              var now = System.nanoTime();
+              if (isFailure(response)) {
+                failed(pick, now);
+              } else {
+                mirror.succeeded(now, now - start);
+              }
+            }
+          })
+          .doOnError(e -> {
+            if (recorded.compareAndSet(false, true)) {
+              failed(pick, System.nanoTime());
+            }
+          })
+          .doFinally(signal -> {
+            if (recorded.compareAndSet(false, true)) {
+              mirror.cancelled(pick.probe());
+            }
+          });
+    });
+  }
+
+  public ImmutableList<Mirror> mirrors() {
+    return mirrors;
+  }
+
+  private Pick pick(long now) {
+    var healthy = new ArrayList<Mirror>(mirrors.size());
+    Mirror dueBackFirst = null;
+    for (var mirror : mirrors) {
+      if (mirror.tryProbe(now)) {
+        return new Pick(mirror, true);
+      }
+      if (!mirror.isEjected()) {
+        healthy.add(mirror);
+      } else if (dueBackFirst == null || mirror.ejectedUntil() < dueBackFirst.ejectedUntil()) {
+        dueBackFirst = mirror;
+      }
+    }
+    if (healthy.isEmpty()) {
+      return new Pick(dueBackFirst, false);
+    }
+    if (healthy.size() == 1) {
+      return new Pick(healthy.get(0), false);
+    }
+    var random = ThreadLocalRandom.current();
+    var first = random.nextInt(healthy.size());
+    var second = random.nextInt(healthy.size() - 1);
+    if (second >= first) {
+      second++;
+    }
+    var a = healthy.get(first);
+    var b = healthy.get(second);
+    return new Pick(a.cost(now) <= b.cost(now) ? a : b, false);
+  }
+
+  private void failed(Pick pick, long now) {
+    if (pick.mirror().failed(now, pick.probe(), ejectAfter, ejectNanos)) {
+      log.warn(
+          "Ejected statsapi mirror {}, probing it again in {} ms",
+          pick.mirror().baseUrl(),
+          TimeUnit.NANOSECONDS.toMillis(ejectNanos));
+    }
+  }
+
+  private static boolean isFailure(ClientResponse response) {
+    return response.statusCode().is5xxServerError()
+        || response.statusCode() == HttpStatus.TOO_MANY_REQUESTS;
+  }
+
+  private static URI rewrite(URI url, URI baseUrl) {
+    var basePath = baseUrl.getRawPath() == null ? "" : baseUrl.getRawPath();
+    if (basePath.endsWith("/")) {
+      basePath = basePath.substring(0, basePath.length() - 1);
+    }
+    return UriComponentsBuilder.fromUri(url)
+        .scheme(baseUrl.getScheme())
+        .host(baseUrl.getHost())
+        .port(baseUrl.getPort())
+        .replacePath(basePath + url.getRawPath())
+        .build(true)
+        .toUri();
+  }
+
+  private record Pick(Mirror mirror, boolean probe) {}
+
+  /** One mirror and what the filter has learned about it. */
+  public static final class Mirror {
+    private final URI baseUrl;
+    private final double decayNanos;
+    private long requests;
+    private long ejections;
+    private int outstanding;
+    private double latencyNanos;
+    private long updatedNanos = System.nanoTime();
+    private int failures;
+    private boolean ejected;
+    private long ejectedUntilNanos;
+    private boolean probing;
+
+    private Mirror(URI baseUrl, double decayNanos) {
+      this.baseUrl = baseUrl;
+      this.decayNanos = decayNanos;
+    }
+
+    public URI baseUrl() {
+      return baseUrl;
+    }
+
+    /** Number of requests sent to the mirror. */
+    public synchronized long requests() {
+      return requests;
+    }
+
+    /** Number of times the mirror was ejected, including after a failed probe. */
+    public synchronized long ejections() {
+      return ejections;
+    }
+
+    public synchronized int outstanding() {
+      return outstanding;
+    }
+
+    /** The mirror's moving average latency, decayed to now. */
+    public synchronized Duration latency() {
+      return Duration.ofNanos((long) decayed(System.nanoTime()));
+    }
+
+    public synchronized boolean isEjected() {
+      return ejected;
+    }
+
+    synchronized long ejectedUntil() {
+      return ejectedUntilNanos;
+    }
+
+    synchronized double cost(long now) {
+      return Math.max(MIN_LATENCY_NANOS, decayed(now)) * (outstanding + 1);
+    }
+
+    /** Claims the probe of an ejected mirror that is due back, unless another request has. */
+    synchronized boolean tryProbe(long now) {
+      if (!ejected || probing || now < ejectedUntilNanos) {
+        return false;
+      }
+      probing = true;
+      return true;
+    }
+
+    synchronized void start() {
+      requests++;
+      outstanding++;
+    }
+
+    synchronized void succeeded(long now, long latency) {
+      outstanding--;
+      var weight = Math.exp(-(now - updatedNanos) / decayNanos);
+      latencyNanos = latency > latencyNanos * weight
+          ? latency
+          : latencyNanos * weight + latency * (1 - weight);
+      updatedNanos = now;
+      failures = 0;
+      if (ejected) {
+        ejected = false;
+        probing = false;
+        log.info("statsapi mirror {} is back", baseUrl);
+      }
+    }
+
+    /** Returns whether this failure ejected the mirror, or kept it ejected after a probe. */
+    synchronized boolean failed(long now, boolean probe, int ejectAfter, long ejectNanos) {
+      outstanding--;
+      failures++;
+      if (probe) {
+        probing = false;
+      } else if (ejected || failures < ejectAfter) {
+        return false;
+      }
+      ejected = true;
+      ejectedUntilNanos = now + ejectNanos;
+      ejections++;
+      return true;
+    }
+
+    synchronized void cancelled(boolean probe) {
+      outstanding--;
+      if (probe) {
+        // A cancelled probe says nothing either way, so the next request probes instead.
+        probing = false;
+      }
+    }
+
+    private double decayed(long now) {
+      return latencyNanos * Math.exp(-(now - updatedNanos) / decayNanos);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package dev.agaber.sports.http;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records a timer and a response size summary per {@link RequestAttributes#ENDPOINT}.
+ *
+ * <p>{@value #REQUESTS} measures the time until the response status and headers arrive. It is
+ * tagged with the status code, {@code CLIENT_ERROR} when the exchange failed, or {@code CANCELLED}
+ * when the caller gave up first. {@value #RESPONSE_SIZE} counts body bytes as they are read,
+ * without buffering them.
+ */
+public final class MetricsExchangeFilter implements ExchangeFilterFunction {
+  public static final String REQUESTS = "statsapi.client.requests";
+  public static final String RESPONSE_SIZE = "statsapi.client.response.size";
+
+  private final MeterRegistry registry;
+
+  public MetricsExchangeFilter(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+    var endpoint = RequestAttributes.endpoint(request);
+    return Mono.defer(() -> {
+      var start = System.nanoTime();
+      var recorded = new AtomicBoolean();
+      return next.exchange(request)
+          .doOnNext(response -> {
+            if (recorded.compareAndSet(false, true)) {
+              record(endpoint, String.valueOf(response.statusCode().value()), start);
+            }
+          })
+          .doOnError(e -> {
+            if (recorded.compareAndSet(false, true)) {
+              record(endpoint, "CLIENT_ERROR", start);
+            }
+          })
+          .doOnCancel(() -> {
+            if (recorded.compareAndSet(false, true)) {
+              record(endpoint, "CANCELLED", start);
+            }
+          })
+          .map(response -> countBodyBytes(endpoint, response));
+    });
+  }
+
+  private void record(String endpoint, String status, long startNanos) {
+    Timer.builder(REQUESTS)
+        .description("Time until statsapi response headers arrive")
+        .tag("endpoint", endpoint)
+        .tag("status", status)
+        .register(registry)
+        .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private ClientResponse countBodyBytes(String endpoint, ClientResponse response) {
+    var size = DistributionSummary.builder(RESPONSE_SIZE)
+        .description("Size of statsapi response bodies")
+        .baseUnit("bytes")
+        .tag("endpoint", endpoint)
+        .register(registry);
+    var bytes = new AtomicLong();
+    return response.mutate()
+        .body(body -> body
+            .doOnNext(buffer -> bytes.addAndGet(buffer.readableByteCount()))
+            .doOnComplete(() -> size.record(bytes.get())))
+        .build();
+  }
+}
@@ -0,0 +1,108 @@
+package dev.agaber.sports.http;
+
+import dev.agaber.sports.http.DiskResponseStore.StoredResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves GET requests from a {@link DiskResponseStore} and writes successful responses back to it,
+ * so a fresh JVM can answer repeated lookups without any network I/O.
+ *
+ * <p>Entries live for a fixed time to live. {@code no-store} responses are never written, and
+ * {@link RequestAttributes#STREAMED} requests are neither served nor written.
+ */
+@Slf4j
+public final class PersistentCacheFilter implements ExchangeFilterFunction {
+  private final Clock clock;
+  private final DiskResponseStore store;
+  private final ExchangeStrategies strategies;
+  private final Duration timeToLive;
+  private final int maxBufferSize;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public PersistentCacheFilter(
+      DiskResponseStore store,
+      ExchangeStrategies strategies,
+      Clock clock,
+      Duration timeToLive,
+      int maxBufferSize) {
+    this.clock = clock;
+    this.maxBufferSize = maxBufferSize;
+    this.store = store;
+    this.strategies = strategies;
+    this.timeToLive = timeToLive;
+  }
+
+  @Override
+  public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+    if (!HttpMethod.GET.equals(request.method()) || RequestAttributes.isStreamed(request)) {
+      return next.exchange(request);
+    }
+    var key = request.url().toString();
+    return Mono.fromCallable(() -> store.get(key))
+        .subscribeOn(Schedulers.boundedElastic())
+        .flatMap(stored -> {
+          if (stored.isPresent()) {
+            hits.incrementAndGet();
+            return Mono.just(toClientResponse(stored.get()));
+          }
+          misses.incrementAndGet();
+          return next.exchange(request).flatMap(response -> {
+            if (response.statusCode() != HttpStatus.OK || isNoStore(response)) {
+              return Mono.just(response);
+            }
+            return BufferedResponse.read(response, maxBufferSize)
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(buffered -> store.put(
+                    key,
+                    new StoredResponse(
+                        buffered.statusCode().value(),
+                        buffered.headers(),
+                        buffered.body()),
+                    clock.instant().plus(timeToLive)))
+                .map(BufferedResponse::toClientResponse);
+          });
+        });
+  }
+
+  public long hits() {
+    return hits.get();
+  }
+
+  public long misses() {
+    return misses.get();
+  }
+
+  private ClientResponse toClientResponse(StoredResponse stored) {
+    return new BufferedResponse(
+        HttpStatusCode.valueOf(stored.status()),
+        stored.headers(),
+        stored.body(),
+        null,
+        strategies)
+        .toClientResponse();
+  }
+
+  private static boolean isNoStore(ClientResponse response) {
+    // Directive names are case-insensitive ASCII, so no locale's case rules apply.
+    return response.headers().header(HttpHeaders.CACHE_CONTROL).stream()
+        .flatMap(cacheControl -> Arrays.stream(cacheControl.split(",")))
+        .anyMatch(directive -> directive.strip().equalsIgnoreCase("no-store"));
+  }
+}
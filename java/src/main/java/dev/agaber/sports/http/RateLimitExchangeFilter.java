@@ -0,0 +1,124 @@
+package dev.agaber.sports.http;
+
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+
+import com.google.common.collect.ImmutableMap;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Spaces out requests to statsapi, so that a burst of work such as a batch reaches it at a steady
+ * rate it tolerates instead of all at once.
+ *
+ * <p>A token bucket refills at {@code perSecond} and saves up at most {@code burst} tokens. Each
+ * request takes one. When the bucket is empty a request reserves the next token due and waits for
+ * it on a timer rather than a thread, so waiting requests leave in the order they came, evenly
+ * spaced. Endpoints listed in {@code endpointRates} also take a token from a bucket of their own,
+ * which saves up at most a second of its rate, and wait for whichever token is due last. A request
+ * cancelled while it waits, for instance by its deadline, gives its tokens back.
+ *
+ * <p>A {@code 429} means statsapi is throttling us anyway, so it throws away whatever burst has
+ * been saved up and only the steady rate is sent until the bucket fills again.
+ */
+public final class RateLimitExchangeFilter implements ExchangeFilterFunction {
+  private final TokenBucket bucket;
+  private final ImmutableMap<String, TokenBucket> endpointBuckets;
+  private final AtomicInteger waiting = new AtomicInteger();
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong waitNanos = new AtomicLong();
+  private final AtomicLong throttled = new AtomicLong();
+
+  public RateLimitExchangeFilter(double perSecond, int burst, Map<String, Double> endpointRates) {
+    var now = System.nanoTime();
+    this.bucket = new TokenBucket(perSecond, burst, now);
+    this.endpointBuckets = endpointRates.entrySet().stream()
+        .collect(toImmutableMap(
+            Map.Entry::getKey,
+            entry -> new TokenBucket(
+                entry.getValue(),
+                Math.max(1, Math.min(burst, entry.getValue())),
+                now)));
+  }
+
+  @Override
+  public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+    var endpointBucket = endpointBuckets.get(RequestAttributes.endpoint(request));
+    return Mono.defer(() -> {
+      var now = System.nanoTime();
+      var wait = bucket.reserve(now);
+      if (endpointBucket != null) {
+        wait = Math.max(wait, endpointBucket.reserve(now));
+      }
+      requests.incrementAndGet();
+      if (wait == 0) {
+        return exchange(request, next, endpointBucket);
+      }
+      waitNanos.addAndGet(wait);
+      waiting.incrementAndGet();
+      var waited = new AtomicBoolean();
+      return Mono.delay(Duration.ofNanos(wait))
+          .doOnCancel(() -> {
+            if (waited.compareAndSet(false, true)) {
+              waiting.decrementAndGet();
+              var cancelledAt = System.nanoTime();
+              bucket.refund(cancelledAt);
+              if (endpointBucket != null) {
+                endpointBucket.refund(cancelledAt);
+              }
+            }
+          })
+          .flatMap(tick -> {
+            if (waited.compareAndSet(false, true)) {
+              waiting.decrementAndGet();
+            }
+            return exchange(request, next, endpointBucket);
+          });
+    });
+  }
+
+  /** Number of requests waiting for a token. */
+  public int waiting() {
+    return waiting.get();
+  }
+
+  /** Number of requests that have taken a token, whether or not they had to wait for it. */
+  public long requests() {
+    return requests.get();
+  }
+
+  /** Total time requests have been told to wait for their tokens. */
+  public double waitNanos() {
+    return waitNanos.get();
+  }
+
+  /** Number of {@code 429} responses from statsapi. */
+  public long throttled() {
+    return throttled.get();
+  }
+
+  private Mono<ClientResponse> exchange(
+      ClientRequest request,
+      ExchangeFunction next,
+      TokenBucket endpointBucket) {
+    return next.exchange(request).doOnNext(response -> {
+      if (response.statusCode() == HttpStatus.TOO_MANY_REQUESTS) {
+        throttled.incrementAndGet();
+        var now = System.nanoTime();
+        bucket.drain(now);
+        if (endpointBucket != null) {
+          endpointBucket.drain(now);
+        }
+      }
+    });
+  }
+}
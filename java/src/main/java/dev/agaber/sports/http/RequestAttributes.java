@@ -0,0 +1,34 @@
+package dev.agaber.sports.http;
+
+import org.springframework.web.reactive.function.client.ClientRequest;
+
+/**
+ * Request attributes that callers set with {@code WebClient.RequestHeadersSpec.attribute} for the
+ * filters in this package to read.
+ */
+public final class RequestAttributes {
+  /**
+   * A short, fixed name for the kind of request, e.g. {@code roster}. Filters keep per-endpoint
+   * metrics and state under this name rather than the URL, which has IDs in it.
+   */
+  public static final String ENDPOINT = RequestAttributes.class.getName() + ".endpoint";
+
+  /**
+   * {@code true} on a request whose response body the caller decodes as it arrives. Filters that
+   * would hold the whole body to cache it or share it pass such requests straight through.
+   */
+  public static final String STREAMED = RequestAttributes.class.getName() + ".streamed";
+
+  /** Endpoint name used for requests that do not set {@link #ENDPOINT}. */
+  public static final String UNKNOWN_ENDPOINT = "other";
+
+  private RequestAttributes() {}
+
+  public static String endpoint(ClientRequest request) {
+    return request.attribute(ENDPOINT).map(Object::toString).orElse(UNKNOWN_ENDPOINT);
+  }
+
+  public static boolean isStreamed(ClientRequest request) {
+    return request.attribute(STREAMED).map(Boolean.TRUE::equals).orElse(false);
+  }
+}
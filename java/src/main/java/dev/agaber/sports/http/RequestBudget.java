@@ -0,0 +1,61 @@
+package dev.agaber.sports.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps extra requests, such as hedges and retries, to a fraction of the requests that callers
+ * actually made, so that they cannot multiply the load on an upstream that is already struggling.
+ *
+ * <p>Every original request deposits {@code ratio} tokens, tokens also trickle in at {@code
+ * minPerSecond} so that low traffic can still afford an occasional extra, and each extra request
+ * withdraws one whole token. The balance is capped at {@code maxTokens}.
+ */
+public final class RequestBudget {
+  private final double ratio;
+  private final double minPerSecond;
+  private final double maxTokens;
+  private final AtomicLong granted = new AtomicLong();
+  private final AtomicLong denied = new AtomicLong();
+  private double tokens;
+  private long lastRefillNanos = System.nanoTime();
+
+  public RequestBudget(double ratio, double minPerSecond, double maxTokens) {
+    this.ratio = ratio;
+    this.minPerSecond = minPerSecond;
+    this.maxTokens = maxTokens;
+  }
+
+  /** Called once for every original request. */
+  public synchronized void deposit() {
+    refill();
+    tokens = Math.min(maxTokens, tokens + ratio);
+  }
+
+  /** Takes one token for an extra request, or returns false if the budget is spent. */
+  public synchronized boolean tryWithdraw() {
+    refill();
+    if (tokens < 1) {
+      denied.incrementAndGet();
+      return false;
+    }
+    tokens--;
+    granted.incrementAndGet();
+    return true;
+  }
+
+  /** Number of extra requests allowed. */
+  public long granted() {
+    return granted.get();
+  }
+
+  /** Number of extra requests refused because the budget was spent. */
+  public long denied() {
+    return denied.get();
+  }
+
+  private void refill() {
+    var now = System.nanoTime();
+    tokens = Math.min(maxTokens, tokens + (now - lastRefillNanos) / 1e9 * minPerSecond);
+    lastRefillNanos = now;
+  }
+}
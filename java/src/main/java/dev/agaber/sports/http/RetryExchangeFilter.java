@@ -0,0 +1,93 @@
+package dev.agaber.sports.http;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retries GET requests that fail in a way that another attempt might not: a {@code 5xx} other
+ * than {@code 501}, a {@code 429}, or an exchange that failed before a response arrived, such as a
+ * refused or reset connection.
+ *
+ * <p>Attempts are spaced by exponential backoff from {@code minBackoff} up to {@code maxBackoff},
+ * each randomized by {@code jitter} so that callers that failed together do not retry together.
+ * Every retry is paid for from a {@link RequestBudget}, so an upstream that keeps failing sees at
+ * most a fixed fraction of extra load. A retryable response is read into a {@link
+ * WebClientResponseException}, and the last one is the error once attempts or budget run out.
+ * Other responses are passed on untouched.
+ */
+public final class RetryExchangeFilter implements ExchangeFilterFunction {
+  private final Retry retry;
+  private final RequestBudget budget;
+  private final AtomicLong retries = new AtomicLong();
+  private final AtomicLong exhausted = new AtomicLong();
+
+  public RetryExchangeFilter(
+      int maxAttempts,
+      Duration minBackoff,
+      Duration maxBackoff,
+      double jitter,
+      RequestBudget budget) {
+    this.budget = budget;
+    this.retry = Retry.backoff(maxAttempts - 1, minBackoff)
+        .maxBackoff(maxBackoff)
+        .jitter(jitter)
+        .filter(e -> isRetryable(e) && budget.tryWithdraw())
+        .doBeforeRetry(signal -> retries.incrementAndGet())
+        .onRetryExhaustedThrow((spec, signal) -> {
+          exhausted.incrementAndGet();
+          return signal.failure();
+        });
+  }
+
+  @Override
+  public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+    if (!HttpMethod.GET.equals(request.method())) {
+      return next.exchange(request);
+    }
+    return Mono.defer(() -> {
+      budget.deposit();
+      return Mono.defer(() -> next.exchange(request))
+          .flatMap(response -> isRetryable(response.statusCode())
+              ? response.createException().flatMap(Mono::<ClientResponse>error)
+              : Mono.just(response))
+          .retryWhen(retry);
+    });
+  }
+
+  /** Number of requests sent again after a failure. */
+  public long retries() {
+    return retries.get();
+  }
+
+  /** Number of requests that still failed after their last allowed attempt. */
+  public long exhausted() {
+    return exhausted.get();
+  }
+
+  public RequestBudget budget() {
+    return budget;
+  }
+
+  private static boolean isRetryable(Throwable e) {
+    return e instanceof WebClientRequestException
+        || e instanceof WebClientResponseException response
+            && isRetryable(response.getStatusCode());
+  }
+
+  private static boolean isRetryable(HttpStatusCode status) {
+    return status == HttpStatus.TOO_MANY_REQUESTS
+        || status.is5xxServerError() && status != HttpStatus.NOT_IMPLEMENTED;
+  }
+}
@@ -0,0 +1,44 @@
+package dev.agaber.sports.http;
+
+/**
+ * Tokens for {@link RateLimitExchangeFilter}: refilled at a fixed rate, with at most {@code
+ * capacity} saved up. A reservation can take the balance below zero, which is how far ahead the
+ * next tokens are already promised to requests that are waiting for them.
+ */
+final class TokenBucket {
+  private final double tokensPerNano;
+  private final double capacity;
+  private double tokens;
+  private long refilledNanos;
+
+  TokenBucket(double perSecond, double capacity, long now) {
+    this.tokensPerNano = perSecond / 1e9;
+    this.capacity = capacity;
+    this.tokens = capacity;
+    this.refilledNanos = now;
+  }
+
+  /** Takes a token and returns how many nanoseconds to wait before it is there, if any. */
+  synchronized long reserve(long now) {
+    refill(now);
+    tokens--;
+    return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+  }
+
+  /** Gives back a token reserved by a request that was never sent. */
+  synchronized void refund(long now) {
+    refill(now);
+    tokens = Math.min(capacity, tokens + 1);
+  }
+
+  /** Throws away any saved up tokens, so that only the steady rate is let through. */
+  synchronized void drain(long now) {
+    refill(now);
+    tokens = Math.min(0, tokens);
+  }
+
+  private void refill(long now) {
+    tokens = Math.min(capacity, tokens + (now - refilledNanos) * tokensPerNano);
+    refilledNanos = now;
+  }
+}
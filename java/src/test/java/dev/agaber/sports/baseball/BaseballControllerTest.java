@@ -0,0 +1,90 @@
+package dev.agaber.sports.baseball;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static dev.agaber.sports.baseball.BaseballTeamServiceTest.EXPECTED_GIANTS_OUTPUT;
+import static dev.agaber.sports.baseball.BaseballTeamServiceTest.read;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@ActiveProfiles({"test", "server"})
+@AutoConfigureWireMock(port = 0)
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "baseball.statsApiUrl=http://localhost:${wiremock.server.port}")
+final class BaseballControllerTest {
+  @Autowired
+  private WebTestClient webTestClient;
+
+  @BeforeEach
+  void beforeEach() throws Exception {
+    WireMock.reset();
+
+    stubFor(WireMock.get(urlPathEqualTo("/api/v1/teams/137"))
+        .willReturn(aResponse()
+            .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .withBody(read("team-137.json"))));
+
+    stubFor(WireMock.get(urlPathEqualTo("/api/v1/teams/137/roster"))
+        .willReturn(aResponse()
+            .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .withBody(read("team-137-roster.json"))));
+
+    stubFor(WireMock.get(urlPathEqualTo("/api/v1/venues/2395"))
+        .willReturn(aResponse()
+            .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .withBody(read("venue-2395.json"))));
+  }
+
+  @Test
+  void roster_byTeamId() {
+    var csv = webTestClient.get()
+        .uri("/teams/137/roster")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentTypeCompatibleWith("text/csv")
+        .expectBody(String.class)
+        .returnResult()
+        .getResponseBody();
+    assertThat(csv).isEqualToNormalizingNewlines(EXPECTED_GIANTS_OUTPUT);
+  }
+
+  @Test
+  void roster_notFound() {
+    webTestClient.get()
+        .uri("/teams/999/roster")
+        .exchange()
+        .expectStatus().isNotFound();
+  }
+
+  @Test
+  void rosters_streamsUnderOneHeader() {
+    var csv = webTestClient.get()
+        .uri("/rosters?team=137&team=999&preserveOrder=true")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(String.class)
+        .returnResult()
+        .getResponseBody();
+    assertThat(csv).isEqualToNormalizingNewlines(EXPECTED_GIANTS_OUTPUT);
+  }
+
+  @Test
+  void readiness() {
+    webTestClient.get()
+        .uri("/actuator/health/readiness")
+        .exchange()
+        .expectStatus().isOk();
+  }
+}
@@ -2,50 +2,86 @@ package dev.agaber.sports.baseball;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.github.tomakehurst.wiremock.client.WireMock;
+import dev.agaber.sports.baseball.BaseballConfig.ExecutionMode;
+import dev.agaber.sports.http.Deadline;
+import dev.agaber.sports.http.DeadlineExceededException;
 import dev.agaber.sports.testing.FakeClock;
+import io.netty.buffer.UnpooledByteBufAllocator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @ActiveProfiles("test")
 @AutoConfigureWireMock(port = 0)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
 final class BaseballTeamServiceTest {
+  private static final String ROSTER_PATHS = "/api/v1/teams/[0-9]+/roster";
+
   @Autowired
   private ObjectMapper objectMapper;
 
+  @Autowired
+  private TimedDecoder timedDecoder;
+
   @Autowired
   private WebClient webClient;
 
   @Value("#{${wiremock.server.port}}")
   private int mockServerPort;
 
+  private BaseballConfig config;
+  private TeamDirectory teamDirectory;
+
   @BeforeEach
   void beforeEach() throws Exception {
     WireMock.reset();
 
+    config = new BaseballConfig();
+    config.setDirectoryRefreshInterval(Duration.ofHours(1));
+    config.setStatsApiUrl("http://localhost:" + mockServerPort);
+    teamDirectory = new TeamDirectory(config, objectMapper, timedDecoder, webClient);
+
     stubFor(WireMock.get(urlPathEqualTo("/api/v1/teams"))
         .withQueryParam("season", equalTo("2023"))
         .withQueryParam("sportIds", equalTo("1"))
@@ -69,42 +105,376 @@ final class BaseballTeamServiceTest {
             .withBody(read("venue-2395.json"))));
   }
 
-  @Test
-  void printTeamInfo_byTeamId() throws Exception {
+  @ParameterizedTest
+  @EnumSource(ExecutionMode.class)
+  void printTeamInfo_byTeamId(ExecutionMode mode) throws Exception {
+    config.setExecutionMode(mode);
     var teamInfo = execute("137");
     assertThat(teamInfo).isEqualToNormalizingNewlines(EXPECTED_GIANTS_OUTPUT);
   }
 
-  @Test
-  void printTeamInfo_byTeamIdNotFound_printNotFound() throws Exception {
+  @ParameterizedTest
+  @EnumSource(ExecutionMode.class)
+  void printTeamInfo_byTeamId_fetchesEachResourceOnce(ExecutionMode mode) throws Exception {
+    config.setExecutionMode(mode);
+    execute("137");
+    verify(1, getRequestedFor(urlPathEqualTo("/api/v1/teams/137")));
+    verify(1, getRequestedFor(urlPathEqualTo("/api/v1/teams/137/roster")));
+    verify(1, getRequestedFor(urlPathEqualTo("/api/v1/venues/2395")));
+  }
+
+  @ParameterizedTest
+  @EnumSource(ExecutionMode.class)
+  void printTeamInfo_hydrated_fetchesOnlyTheTeam(ExecutionMode mode) throws Exception {
+    config.setExecutionMode(mode);
+    stubFor(WireMock.get(urlPathEqualTo("/api/v1/teams/137"))
+        .withQueryParam("hydrate", equalTo("roster(person),venue"))
+        .willReturn(aResponse()
+            .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .withBody(read("team-137-hydrated.json"))));
+
+    assertThat(execute("137")).isEqualToNormalizingNewlines(EXPECTED_GIANTS_OUTPUT);
+    assertThat(execute("Giants")).isEqualToNormalizingNewlines(EXPECTED_GIANTS_OUTPUT);
+    verify(2, getRequestedFor(urlPathEqualTo("/api/v1/teams/137")));
+    verify(0, getRequestedFor(urlPathEqualTo("/api/v1/teams/137/roster")));
+    verify(0, getRequestedFor(urlPathEqualTo("/api/v1/venues/2395")));
+  }
+
+  @ParameterizedTest
+  @EnumSource(ExecutionMode.class)
+  void printTeamInfo_hydrateRejected_fallsBackToSeparateCalls(ExecutionMode mode)
+      throws Exception {
+    config.setExecutionMode(mode);
+    stubFor(WireMock.get(urlPathEqualTo("/api/v1/teams/137"))
+        .withQueryParam("hydrate", equalTo("roster(person),venue"))
+        .willReturn(aResponse().withStatus(400)));
+
+    assertThat(execute("137")).isEqualToNormalizingNewlines(EXPECTED_GIANTS_OUTPUT);
+    verify(1, getRequestedFor(urlPathEqualTo("/api/v1/teams/137/roster")));
+    verify(1, getRequestedFor(urlPathEqualTo("/api/v1/venues/2395")));
+  }
+
+  @ParameterizedTest
+  @EnumSource(ExecutionMode.class)
+  void printTeamInfo_rosterRejected_failsWithoutFallingBack(ExecutionMode mode) throws Exception {
+    config.setExecutionMode(mode);
+    stubFor(WireMock.get(urlPathEqualTo("/api/v1/teams/137/roster"))
+        .willReturn(aResponse().withStatus(HttpStatus.BAD_REQUEST.value())));
+
+    assertThatThrownBy(() -> execute("137"));
+    verify(1, getRequestedFor(urlPathEqualTo("/api/v1/teams/137")));
+    verify(1, getRequestedFor(urlPathEqualTo("/api/v1/teams/137/roster")));
+  }
+
+  @ParameterizedTest
+  @EnumSource(ExecutionMode.class)
+  void printTeamInfo_hydrateOff_fetchesEachResource(ExecutionMode mode) throws Exception {
+    config.setExecutionMode(mode);
+    config.setHydrate(false);
+
+    assertThat(execute("137")).isEqualToNormalizingNewlines(EXPECTED_GIANTS_OUTPUT);
+    verify(0, getRequestedFor(urlPathEqualTo("/api/v1/teams/137"))
+        .withQueryParam("hydrate", WireMock.matching(".*")));
+    verify(1, getRequestedFor(urlPathEqualTo("/api/v1/teams/137/roster")));
+  }
+
+  @ParameterizedTest
+  @EnumSource(ExecutionMode.class)
+  void printTeamInfo_byTeamIdNotFound_printNotFound(ExecutionMode mode) throws Exception {
+    config.setExecutionMode(mode);
     var teamInfo = execute("999");
     assertThat(teamInfo).isEqualTo("Not Found");
   }
 
-  @Test
-  void printTeamInfo_byTeamName() throws Exception {
+  @ParameterizedTest
+  @EnumSource(ExecutionMode.class)
+  void printTeamInfo_byTeamName(ExecutionMode mode) throws Exception {
+    config.setExecutionMode(mode);
     var teamInfo = execute("Giants");
     assertThat(teamInfo).isEqualToNormalizingNewlines(EXPECTED_GIANTS_OUTPUT);
   }
 
-  @Test
-  void printTeamInfo_byTeamNameNotFound_printNotFound() throws Exception {
+  @ParameterizedTest
+  @EnumSource(ExecutionMode.class)
+  void printTeamInfo_byAbbreviation(ExecutionMode mode) throws Exception {
+    config.setExecutionMode(mode);
+    var teamInfo = execute("SF");
+    assertThat(teamInfo).isEqualToNormalizingNewlines(EXPECTED_GIANTS_OUTPUT);
+  }
+
+  @ParameterizedTest
+  @EnumSource(ExecutionMode.class)
+  void printTeamInfo_ambiguousName_printNotFound(ExecutionMode mode) throws Exception {
+    config.setExecutionMode(mode);
+    var teamInfo = execute("Sox");
+    assertThat(teamInfo).isEqualToNormalizingNewlines("Not Found");
+  }
+
+  @ParameterizedTest
+  @EnumSource(ExecutionMode.class)
+  void printTeamInfo_byTeamNameNotFound_printNotFound(ExecutionMode mode) throws Exception {
+    config.setExecutionMode(mode);
     var teamInfo = execute("knicks");
     assertThat(teamInfo).isEqualToNormalizingNewlines("Not Found");
   }
 
-  // TODO: Test more ways of searching for teams by name.
+  @ParameterizedTest
+  @EnumSource(ExecutionMode.class)
+  void printTeamInfo_repeatedLookups_reuseTeamDirectory(ExecutionMode mode) throws Exception {
+    config.setExecutionMode(mode);
+    // With hydration the team call also brings the roster, so it is made whatever the directory
+    // holds.
+    config.setHydrate(false);
+    assertThat(execute("Giants")).isEqualToNormalizingNewlines(EXPECTED_GIANTS_OUTPUT);
+    assertThat(execute("giants")).isEqualToNormalizingNewlines(EXPECTED_GIANTS_OUTPUT);
+    assertThat(execute("137")).isEqualToNormalizingNewlines(EXPECTED_GIANTS_OUTPUT);
+
+    verify(1, getRequestedFor(urlPathEqualTo("/api/v1/teams")));
+    verify(0, getRequestedFor(urlPathEqualTo("/api/v1/teams/137")));
+    assertThat(teamDirectory.size()).isEqualTo(30);
+    assertThat(teamDirectory.age(2023)).isPresent();
+  }
+
+  @ParameterizedTest
+  @EnumSource(ExecutionMode.class)
+  void printTeamInfo_slowerThanTimeout_failsAtDeadline(ExecutionMode mode) throws Exception {
+    config.setExecutionMode(mode);
+    config.setTimeout(Duration.ofMillis(300));
+    stubFor(WireMock.get(urlPathEqualTo("/api/v1/teams/137/roster"))
+        .willReturn(aResponse()
+            .withFixedDelay(5_000)
+            .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .withBody(read("team-137-roster.json"))));
+
+    var start = System.nanoTime();
+    assertThatThrownBy(() -> execute("137")).isInstanceOf(DeadlineExceededException.class);
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+  }
+
+  @ParameterizedTest
+  @EnumSource(ExecutionMode.class)
+  void executeTeam_largerThanOneBuffer_returnsItAllAndLeaksNothing(ExecutionMode mode)
+      throws Exception {
+    config.setExecutionMode(mode);
+    config.setHydrate(false);
+    // Eight copies of the roster make a CSV of well over 8 KB.
+    var rosterJson = objectMapper.readTree(read("team-137-roster.json"));
+    var roster = (ArrayNode) rosterJson.get("roster");
+    var players = roster.deepCopy();
+    for (var i = 1; i < 8; i++) {
+      roster.addAll(players.deepCopy());
+    }
+    stubFor(WireMock.get(urlPathEqualTo("/api/v1/teams/137/roster"))
+        .willReturn(aResponse()
+            .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .withBody(objectMapper.writeValueAsString(rosterJson))));
+    var allocated = new ArrayList<NettyDataBuffer>();
+    var bufferFactory = new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT) {
+      @Override
+      public NettyDataBuffer allocateBuffer(int initialCapacity) {
+        var buffer = super.allocateBuffer(initialCapacity);
+        allocated.add(buffer);
+        return buffer;
+      }
+    };
+
+    var buffer = service().executeTeam("137", bufferFactory).block(Duration.ofSeconds(2));
+    var output = buffer.toString(StandardCharsets.UTF_8);
+    DataBufferUtils.release(buffer);
+
+    // The sort by position is stable, so each position's players repeat together.
+    var expected = new StringBuilder(EXPECTED_GIANTS_OUTPUT.lines().findFirst().get() + "\n");
+    EXPECTED_GIANTS_OUTPUT.lines()
+        .skip(1)
+        .collect(Collectors.groupingBy(
+            line -> line.substring(line.lastIndexOf(',', line.lastIndexOf(',') - 1)),
+            LinkedHashMap::new,
+            Collectors.joining("\n", "", "\n")))
+        .values()
+        .forEach(rows -> expected.append(rows.repeat(8)));
+    assertThat(output.length()).isGreaterThan(8 * 1024);
+    assertThat(output).isEqualToNormalizingNewlines(expected.toString());
+    assertThat(allocated).allMatch(allocation -> allocation.getNativeBuffer().refCnt() == 0);
+  }
+
+  @Test
+  void teamDirectory_firstCallerTimesOut_othersStillGetTheLoad() throws Exception {
+    stubFor(WireMock.get(urlPathEqualTo("/api/v1/teams"))
+        .willReturn(aResponse()
+            .withFixedDelay(300)
+            .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .withBody(read("teams-allmlb.json"))));
+
+    var impatient = teamDirectory.teams(2023)
+        .contextWrite(Deadline.within(Duration.ofMillis(50)))
+        .toFuture();
+    var patient = teamDirectory.teams(2023).toFuture();
+
+    assertThat(patient.get(2, TimeUnit.SECONDS)).isNotEmpty();
+    assertThatThrownBy(impatient::get).hasCauseInstanceOf(DeadlineExceededException.class);
+    verify(1, getRequestedFor(urlPathEqualTo("/api/v1/teams")));
+  }
+
+  @ParameterizedTest
+  @EnumSource(ExecutionMode.class)
+  void streamTeamInfo_byTeamId(ExecutionMode mode) throws Exception {
+    config.setExecutionMode(mode);
+    config.setTeam("137");
+    assertThat(executeStreaming()).isEqualToNormalizingNewlines(EXPECTED_GIANTS_OUTPUT);
+  }
+
+  @ParameterizedTest
+  @EnumSource(ExecutionMode.class)
+  void streamTeamInfo_byTeamIdNotFound_printNotFound(ExecutionMode mode) throws Exception {
+    config.setExecutionMode(mode);
+    config.setTeam("999");
+    assertThat(executeStreaming()).isEqualToNormalizingNewlines("Not Found\n");
+  }
+
+  @ParameterizedTest
+  @EnumSource(ExecutionMode.class)
+  void printBatch_concatenatesTeamsUnderOneHeader(ExecutionMode mode) throws Exception {
+    config.setExecutionMode(mode);
+    config.setBatchConcurrency(2);
+    config.setPreserveOrder(true);
+    config.setHydrate(false);
+    config.setTeams(List.of("137", "knicks", "Giants"));
+
+    var output = executeStreaming();
+
+    var rows = EXPECTED_GIANTS_OUTPUT.substring(EXPECTED_GIANTS_OUTPUT.indexOf('\n') + 1);
+    assertThat(output).isEqualToNormalizingNewlines(EXPECTED_GIANTS_OUTPUT + rows);
+    verify(1, getRequestedFor(urlPathEqualTo("/api/v1/teams")));
+    verify(0, getRequestedFor(urlPathEqualTo("/api/v1/teams/137")));
+  }
+
+  @ParameterizedTest
+  @EnumSource(ExecutionMode.class)
+  void printBatch_readsTeamsFile(ExecutionMode mode, @TempDir Path tempDir) throws Exception {
+    config.setExecutionMode(mode);
+    var teamsFile = tempDir.resolve("teams.txt");
+    Files.writeString(teamsFile, "# Giants by ID\n137\n\n");
+    config.setBatchConcurrency(2);
+    config.setTeamsFile(teamsFile);
+
+    assertThat(executeStreaming()).isEqualToNormalizingNewlines(EXPECTED_GIANTS_OUTPUT);
+  }
+
+  @ParameterizedTest
+  @EnumSource(ExecutionMode.class)
+  void printBatch_lookupFails_printsOtherTeamsThenFails(ExecutionMode mode) throws Exception {
+    config.setExecutionMode(mode);
+    config.setBatchConcurrency(2);
+    config.setPreserveOrder(true);
+    config.setTeams(List.of("147", "137"));
+    stubFor(WireMock.get(urlPathEqualTo("/api/v1/teams/147"))
+        .willReturn(aResponse().withStatus(HttpStatus.BAD_GATEWAY.value())));
+
+    var output = new StringBuilder();
+    var csv = service().executeStreaming(DefaultDataBufferFactory.sharedInstance)
+        .doOnNext(buffer -> output.append(buffer.toString(StandardCharsets.UTF_8)));
+
+    assertThatThrownBy(() -> csv.blockLast(Duration.ofSeconds(5)))
+        .isInstanceOf(BatchFailedException.class)
+        .extracting(e -> ((BatchFailedException) e).failures())
+        .isEqualTo(1);
+    assertThat(output.toString()).isEqualToNormalizingNewlines(EXPECTED_GIANTS_OUTPUT);
+  }
+
+  @Test
+  void printSnapshot_fetchesEveryActiveRosterWithItsOwnDeadline() throws Exception {
+    config.setSnapshot(true);
+    config.setSnapshotConcurrency(2);
+    config.setTimeout(Duration.ofMillis(300));
+    stubRosters(50);
+
+    var start = System.nanoTime();
+    var lines = executeStreaming().lines().toList();
+
+    // 30 rosters, two at a time, take longer than one timeout but none of them is late.
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThan(config.getTimeout());
+    verify(30, getRequestedFor(urlPathMatching(ROSTER_PATHS)));
+    var giantsRows = EXPECTED_GIANTS_OUTPUT.lines().count() - 1;
+    assertThat(lines).hasSize((int) (1 + 30 * giantsRows));
+    assertThat(lines.get(0)).isEqualTo("Team,Jersey,Name,Position");
+    assertThat(lines).contains(
+        "San Francisco Giants,31,LaMonte Wade Jr.,1B",
+        "New York Yankees,62,Logan Webb,P");
+  }
+
+  @Test
+  void printSnapshot_rosterFails_printsNothing() throws Exception {
+    config.setSnapshot(true);
+    stubRosters(0);
+    stubFor(WireMock.get(urlPathEqualTo("/api/v1/teams/147/roster"))
+        .willReturn(aResponse().withStatus(HttpStatus.INTERNAL_SERVER_ERROR.value())));
+
+    var output = new StringBuilder();
+    var csv = service().executeStreaming(DefaultDataBufferFactory.sharedInstance)
+        .doOnNext(buffer -> output.append(buffer.toString(StandardCharsets.UTF_8)));
+
+    assertThatThrownBy(() -> csv.blockLast(Duration.ofSeconds(2)))
+        .isInstanceOf(WebClientResponseException.InternalServerError.class);
+    assertThat(output.toString()).isEmpty();
+  }
+
+  @Test
+  void printSnapshot_rosterSlowerThanTimeout_failsAtDeadline() throws Exception {
+    config.setSnapshot(true);
+    config.setTimeout(Duration.ofMillis(300));
+    stubRosters(0);
+    stubFor(WireMock.get(urlPathEqualTo("/api/v1/teams/147/roster"))
+        .willReturn(aResponse()
+            .withFixedDelay(5_000)
+            .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .withBody(read("team-137-roster.json"))));
+
+    var start = System.nanoTime();
+    assertThatThrownBy(this::executeStreaming).isInstanceOf(DeadlineExceededException.class);
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+  }
 
   private String execute(String team) {
-    var config = new BaseballConfig();
-    config.setStatsApiUrl("http://localhost:" + mockServerPort);
     config.setTeam(team);
     var clock = new FakeClock(LocalDate.of(2023, 9, 1));
-    var service = new BaseballTeamService(config, clock, objectMapper, webClient);
+    var service = new BaseballTeamService(
+        config,
+        clock,
+        objectMapper,
+        teamDirectory,
+        timedDecoder,
+        webClient);
     return service.execute().block(Duration.ofSeconds(2));
   }
 
-  private static String read(String fileName) throws IOException, URISyntaxException {
+  private String executeStreaming() {
+    return service().executeStreaming(DefaultDataBufferFactory.sharedInstance)
+        .map(buffer -> buffer.toString(StandardCharsets.UTF_8))
+        .collect(Collectors.joining())
+        .block(Duration.ofSeconds(2));
+  }
+
+  /** Every team gets the Giants' roster, after {@code delayMillis}. */
+  private static void stubRosters(int delayMillis) throws Exception {
+    stubFor(WireMock.get(urlPathMatching(ROSTER_PATHS))
+        .willReturn(aResponse()
+            .withFixedDelay(delayMillis)
+            .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .withBody(read("team-137-roster.json"))));
+  }
+
+  private BaseballTeamService service() {
+    var clock = new FakeClock(LocalDate.of(2023, 9, 1));
+    return new BaseballTeamService(
+        config,
+        clock,
+        objectMapper,
+        teamDirectory,
+        timedDecoder,
+        webClient);
+  }
+
+  static String read(String fileName) throws IOException, URISyntaxException {
     var clazz = BaseballTeamServiceTest.class;
     var path = String.format(
         "%s/%s",
@@ -114,7 +484,7 @@ final class BaseballTeamServiceTest {
     return Files.readString(new File(resource.toURI()).toPath(), StandardCharsets.UTF_8);
   }
 
-  private static final String EXPECTED_GIANTS_OUTPUT = """
+  static final String EXPECTED_GIANTS_OUTPUT = """
       Team,Jersey,Name,Position,Home Stadium
       San Francisco Giants,31,LaMonte Wade Jr.,1B,Oracle Park
       San Francisco Giants,41,Wilmer Flores,1B,Oracle Park
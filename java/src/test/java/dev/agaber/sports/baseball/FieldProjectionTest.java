@@ -0,0 +1,109 @@
+package dev.agaber.sports.baseball;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.guava.GuavaModule;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbHydratedTeams;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbRoster;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbTeams;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbVenues;
+import dev.agaber.sports.baseball.MlbTeamsDecoder.TeamFilter;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Set;
+
+final class FieldProjectionTest {
+  private final ObjectMapper objectMapper = new ObjectMapper()
+      .registerModule(new GuavaModule())
+      .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  @Test
+  void of_followsNestedRecordsAndLists() {
+    assertThat(FieldProjection.of(MlbTeams.class))
+        .isEqualTo("teams,id,active,name,locationName,teamName,abbreviation,teamCode,venue");
+    assertThat(FieldProjection.of(MlbRoster.class))
+        .isEqualTo("roster,person,id,fullName,jerseyNumber,position,name,type,abbreviation,"
+            + "status,description");
+  }
+
+  @Test
+  void of_isWorkedOutOncePerType() {
+    assertThat(FieldProjection.of(MlbVenues.class)).isSameAs(FieldProjection.of(MlbVenues.class));
+  }
+
+  @Test
+  void projectedTeams_decodeIdentically() throws IOException {
+    var json = read("teams-allmlb.json");
+    var projected = project(json, FieldProjection.of(MlbTeams.class));
+
+    assertThat(projected.length).isLessThan(compact(json).length / 2);
+    try (var full = objectMapper.createParser(json);
+        var partial = objectMapper.createParser(projected)) {
+      assertThat(MlbTeamsDecoder.decode(partial, TeamFilter.ALL))
+          .isEqualTo(MlbTeamsDecoder.decode(full, TeamFilter.ALL));
+    }
+  }
+
+  @Test
+  void projectedRoster_decodesIdentically() throws IOException {
+    var json = read("team-137-roster.json");
+    var projected = project(json, FieldProjection.of(MlbRoster.class));
+
+    assertThat(projected.length).isLessThan(compact(json).length);
+    assertThat(objectMapper.readValue(projected, MlbRoster.class))
+        .isEqualTo(objectMapper.readValue(json, MlbRoster.class));
+  }
+
+  @Test
+  void projectedVenue_decodesIdentically() throws IOException {
+    var json = read("venue-2395.json");
+    var projected = project(json, FieldProjection.of(MlbVenues.class));
+
+    assertThat(BaseballTeamService.convertVenue(objectMapper, objectMapper.readTree(projected)))
+        .isEqualTo(BaseballTeamService.convertVenue(objectMapper, objectMapper.readTree(json)));
+  }
+
+  @Test
+  void projectedHydratedTeam_decodesIdentically() throws IOException {
+    var json = read("team-137-hydrated.json");
+    var projected = project(json, FieldProjection.of(MlbHydratedTeams.class));
+
+    assertThat(projected.length).isLessThan(compact(json).length);
+    assertThat(objectMapper.readValue(projected, MlbHydratedTeams.class))
+        .isEqualTo(objectMapper.readValue(json, MlbHydratedTeams.class));
+  }
+
+  /** What statsapi does with {@code fields}: drops every field whose name is not listed. */
+  private byte[] project(byte[] json, String fields) throws IOException {
+    var names = Set.of(fields.split(","));
+    return objectMapper.writeValueAsBytes(project(objectMapper.readTree(json), names));
+  }
+
+  /** The same JSON without whitespace, for comparing sizes with a projection. */
+  private byte[] compact(byte[] json) throws IOException {
+    return objectMapper.writeValueAsBytes(objectMapper.readTree(json));
+  }
+
+  private static JsonNode project(JsonNode node, Set<String> names) {
+    if (node instanceof ObjectNode object) {
+      object.retain(names);
+      object.forEach(child -> project(child, names));
+    } else if (node instanceof ArrayNode array) {
+      array.forEach(element -> project(element, names));
+    }
+    return node;
+  }
+
+  private static byte[] read(String fileName) throws IOException {
+    var path = FieldProjectionTest.class.getPackageName().replace(".", "/") + "/" + fileName;
+    try (var in = FieldProjectionTest.class.getClassLoader().getResourceAsStream(path)) {
+      return in.readAllBytes();
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package dev.agaber.sports.baseball;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.guava.GuavaModule;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import dev.agaber.sports.baseball.BaseballTeamService.Id;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbPerson;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbPlayer;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbPosition;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbRoster;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbStatus;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbTeam;
+import dev.agaber.sports.baseball.LeagueSnapshot.RosterEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+final class LeagueSnapshotTest {
+  private static final MlbTeam GIANTS = MlbTeam.builder()
+      .id(137)
+      .active(true)
+      .name("San Francisco Giants")
+      .venue(new Id(2395))
+      .build();
+  private static final MlbTeam EMPTY = MlbTeam.builder().id(120).active(true).name("Empty").build();
+  private static final MlbTeam METS = MlbTeam.builder().id(121).active(true).name("Mets").build();
+  private static final MlbPlayer TRADED = MlbPlayer.builder()
+      .person(new MlbPerson(502171, "Traded Player"))
+      .jerseyNumber("99")
+      .position(new MlbPosition("Shortstop", "Infielder", "SS"))
+      .status(new MlbStatus("Active"))
+      .build();
+
+  private final ObjectMapper objectMapper = new ObjectMapper()
+      .registerModule(new GuavaModule())
+      .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  private MlbRoster giants;
+  private LeagueSnapshot snapshot;
+
+  @BeforeEach
+  void beforeEach() throws IOException {
+    giants = objectMapper.readValue(read("team-137-roster.json"), MlbRoster.class);
+    snapshot = LeagueSnapshot.of(ImmutableMap.of(
+        GIANTS, giants,
+        EMPTY, new MlbRoster(ImmutableList.of()),
+        METS, new MlbRoster(ImmutableList.of(TRADED))));
+  }
+
+  @Test
+  void roster_byTeamId_matchesFetchedRoster() {
+    assertThat(snapshot.roster(137)).containsExactlyElementsOf(giants.roster());
+    assertThat(snapshot.roster(121)).containsExactly(TRADED);
+    assertThat(snapshot.roster(120)).isEmpty();
+    assertThat(snapshot.size()).isEqualTo(giants.roster().size() + 1);
+  }
+
+  @Test
+  void roster_unknownTeam_isEmpty() {
+    assertThat(snapshot.roster(999)).isEmpty();
+  }
+
+  @Test
+  void byPosition_acrossTeams() {
+    assertThat(snapshot.byPosition("P"))
+        .hasSize(13)
+        .allMatch(entry -> entry.team().equals(GIANTS));
+    assertThat(snapshot.byPosition("SS"))
+        .extracting(entry -> entry.team().id())
+        .containsExactlyInAnyOrder(121, 137, 137);
+    assertThat(snapshot.byPosition("XX")).isEmpty();
+  }
+
+  @Test
+  void byPersonId_findsEveryTeamThePersonIsOn() {
+    var giantsPlayer = giants.roster().stream()
+        .filter(player -> player.person().id() == 502171)
+        .findFirst()
+        .orElseThrow();
+
+    assertThat(snapshot.byPersonId(502171)).containsExactlyInAnyOrder(
+        new RosterEntry(GIANTS, giantsPlayer),
+        new RosterEntry(METS, TRADED));
+    assertThat(snapshot.byPersonId(1)).isEmpty();
+  }
+
+  @Test
+  void repeatedValues_areSharedAcrossSnapshots() {
+    var other = LeagueSnapshot.of(ImmutableMap.of(GIANTS, giants));
+
+    var positions = snapshot.roster(137).stream().map(MlbPlayer::position).toList();
+    var otherPositions = other.roster(137).stream().map(MlbPlayer::position).toList();
+    for (var i = 0; i < positions.size(); i++) {
+      assertThat(otherPositions.get(i)).isSameAs(positions.get(i));
+    }
+    assertThat(other.teams().get(0)).isSameAs(snapshot.teams().get(2));
+  }
+
+  private static byte[] read(String fileName) throws IOException {
+    var path = LeagueSnapshotTest.class.getPackageName().replace(".", "/") + "/" + fileName;
+    try (var in = LeagueSnapshotTest.class.getClassLoader().getResourceAsStream(path)) {
+      return in.readAllBytes();
+    }
+  }
+}
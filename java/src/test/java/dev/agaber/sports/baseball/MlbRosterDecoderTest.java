@@ -0,0 +1,93 @@
+package dev.agaber.sports.baseball;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.guava.GuavaModule;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbPlayer;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbRoster;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.core.io.buffer.PooledDataBuffer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+final class MlbRosterDecoderTest {
+  private final ObjectMapper objectMapper = new ObjectMapper()
+      .registerModule(new GuavaModule())
+      .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+  private final NettyDataBufferFactory bufferFactory =
+      new NettyDataBufferFactory(new UnpooledByteBufAllocator(false));
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 7, 1024, 1 << 20})
+  void decode_inChunks_matchesWholeBodyDecode(int chunkSize) throws IOException {
+    var json = read("team-137-roster.json");
+    var expected = objectMapper.readValue(json, MlbRoster.class).roster();
+
+    var buffers = chunks(json, chunkSize);
+    var players = new ArrayList<MlbPlayer>();
+    try (var decoder = new MlbRosterDecoder(objectMapper)) {
+      for (var buffer : buffers) {
+        players.addAll(decoder.feed(buffer));
+      }
+      players.addAll(decoder.endOfInput());
+    }
+
+    assertThat(players).isNotEmpty().containsExactlyElementsOf(expected);
+    assertThat(buffers).allMatch(buffer -> !((PooledDataBuffer) buffer).isAllocated());
+  }
+
+  @Test
+  void decode_emitsPlayersBeforeTheBodyEnds() throws IOException {
+    var json = read("team-137-roster.json");
+    var half = Arrays.copyOf(json, json.length / 2);
+
+    try (var decoder = new MlbRosterDecoder(objectMapper)) {
+      var players = new ArrayList<MlbPlayer>();
+      for (var buffer : chunks(half, 64)) {
+        players.addAll(decoder.feed(buffer));
+      }
+      assertThat(players).isNotEmpty();
+    }
+  }
+
+  @Test
+  void decode_truncatedBody_fails() throws IOException {
+    var json = read("team-137-roster.json");
+    var truncated = Arrays.copyOf(json, json.length - 10);
+
+    try (var decoder = new MlbRosterDecoder(objectMapper)) {
+      for (var buffer : chunks(truncated, 64)) {
+        decoder.feed(buffer);
+      }
+      assertThatThrownBy(decoder::endOfInput).isInstanceOf(JsonParseException.class);
+    }
+  }
+
+  private List<DataBuffer> chunks(byte[] json, int chunkSize) {
+    var buffers = new ArrayList<DataBuffer>();
+    for (var start = 0; start < json.length; start += chunkSize) {
+      var end = Math.min(json.length, start + chunkSize);
+      buffers.add(bufferFactory.wrap(Arrays.copyOfRange(json, start, end)));
+    }
+    return buffers;
+  }
+
+  private static byte[] read(String fileName) throws IOException {
+    var path = MlbRosterDecoderTest.class.getPackageName().replace(".", "/") + "/" + fileName;
+    try (var in = MlbRosterDecoderTest.class.getClassLoader().getResourceAsStream(path)) {
+      return in.readAllBytes();
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package dev.agaber.sports.baseball;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.guava.GuavaModule;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbTeam;
+import dev.agaber.sports.baseball.MlbTeamsDecoder.TeamFilter;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+final class MlbTeamsDecoderTest {
+  private final ObjectMapper objectMapper = new ObjectMapper()
+      .registerModule(new GuavaModule())
+      .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  @Test
+  void decode_allTeams_matchesTreeConversion() throws IOException {
+    var json = read("teams-allmlb.json");
+    var expected = objectMapper.convertValue(
+        objectMapper.readTree(json).get("teams"),
+        new TypeReference<List<MlbTeam>>() {});
+
+    try (var parser = objectMapper.createParser(json)) {
+      assertThat(MlbTeamsDecoder.decode(parser, TeamFilter.ALL))
+          .isNotEmpty()
+          .containsExactlyElementsOf(expected);
+    }
+  }
+
+  @Test
+  void decode_withFilter_onlyBuildsMatches() throws IOException {
+    try (var parser = objectMapper.createParser(read("teams-allmlb.json"))) {
+      var teams = MlbTeamsDecoder.decode(parser, (active, name) -> name.endsWith("Giants"));
+      assertThat(teams).extracting(MlbTeam::id).containsExactly(137);
+    }
+  }
+
+  @Test
+  void decode_singleTeamResponse() throws IOException {
+    try (var parser = objectMapper.createParser(read("team-137.json"))) {
+      var team = MlbTeamsDecoder.decode(parser, TeamFilter.ACTIVE).get(0);
+      assertThat(team.name()).isEqualTo("San Francisco Giants");
+      assertThat(team.venue().id()).isEqualTo(2395);
+    }
+  }
+
+  private static byte[] read(String fileName) throws IOException {
+    var path = MlbTeamsDecoderTest.class.getPackageName().replace(".", "/") + "/" + fileName;
+    try (var in = MlbTeamsDecoderTest.class.getClassLoader().getResourceAsStream(path)) {
+      return in.readAllBytes();
+    }
+  }
+}
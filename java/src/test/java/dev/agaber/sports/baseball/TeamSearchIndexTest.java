@@ -0,0 +1,92 @@
+package dev.agaber.sports.baseball;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.guava.GuavaModule;
+import dev.agaber.sports.baseball.BaseballTeamService.MlbTeam;
+import dev.agaber.sports.baseball.MlbTeamsDecoder.TeamFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.util.List;
+
+final class TeamSearchIndexTest {
+  private final ObjectMapper objectMapper = new ObjectMapper()
+      .registerModule(new GuavaModule())
+      .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  private TeamSearchIndex index;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    var path = getClass().getPackageName().replace(".", "/") + "/teams-allmlb.json";
+    try (var in = getClass().getClassLoader().getResourceAsStream(path);
+        var parser = objectMapper.createParser(in)) {
+      index = TeamSearchIndex.of(MlbTeamsDecoder.decode(parser, TeamFilter.ALL));
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+      "San Francisco Giants", "giants", "GIANTS", "SF", "sfn", "san fran", "gia", "  Giants!"})
+  void find_anyFieldOrPrefix_findsTeam(String query) {
+    assertThat(index.find(query)).map(MlbTeam::id).contains(137);
+  }
+
+  @Test
+  void find_punctuation_isIgnored() {
+    assertThat(index.find("st louis")).map(MlbTeam::name).contains("St. Louis Cardinals");
+    assertThat(index.find("St. Louis")).map(MlbTeam::name).contains("St. Louis Cardinals");
+  }
+
+  @Test
+  void find_moreSpecificFieldWins() {
+    // "Red Sox" is Boston's team name, and only a trigram or two of the White Sox.
+    assertThat(index.find("red sox")).map(MlbTeam::name).contains("Boston Red Sox");
+    // A substring of one name, and a weaker one of another.
+    assertThat(index.find("ants")).map(MlbTeam::name).contains("San Francisco Giants");
+  }
+
+  @Test
+  void find_tie_isEmptyAndSearchListsCandidates() {
+    assertThat(index.find("Sox")).isEmpty();
+    assertThat(index.search("Sox"))
+        .extracting(MlbTeam::name)
+        .containsExactly("Boston Red Sox", "Chicago White Sox");
+  }
+
+  @Test
+  void search_ranksBestMatchFirst() {
+    assertThat(index.search("ants"))
+        .extracting(MlbTeam::name)
+        .startsWith("San Francisco Giants")
+        .contains("Atlanta Braves");
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"knicks", "", " ", "?!"})
+  void find_noMatch_isEmpty(String query) {
+    assertThat(index.find(query)).isEmpty();
+    assertThat(index.search(query)).isEmpty();
+  }
+
+  @Test
+  void find_queryLongerThanBuffer_findsTeam() {
+    var query = "San ... Francisco ... Giants ......................................";
+    assertThat(index.find(query)).map(MlbTeam::id).contains(137);
+  }
+
+  @Test
+  void of_missingFields_areSkipped() {
+    var index = TeamSearchIndex.of(List.of(
+        MlbTeam.builder().id(1).name("Nameless").build(),
+        MlbTeam.builder().id(2).abbreviation("AB").build()));
+    assertThat(index.find("nameless")).map(MlbTeam::id).contains(1);
+    assertThat(index.find("ab")).map(MlbTeam::id).contains(2);
+  }
+}
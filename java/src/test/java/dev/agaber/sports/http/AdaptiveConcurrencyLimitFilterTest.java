@@ -0,0 +1,80 @@
+package dev.agaber.sports.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+
+final class AdaptiveConcurrencyLimitFilterTest {
+  private static final ClientRequest REQUEST =
+      ClientRequest.create(HttpMethod.GET, URI.create("http://localhost/api/v1/venues/2395"))
+          .build();
+  private static final ExchangeFunction HANGS = request -> Mono.never();
+
+  @Test
+  void requestsOverTheLimit_areRejectedWithoutBeingSent() {
+    var filter = filter(2);
+    var first = filter.filter(REQUEST, HANGS).subscribe();
+    var second = filter.filter(REQUEST, HANGS).subscribe();
+
+    assertThatThrownBy(() -> filter.filter(REQUEST, HANGS).block(Duration.ofSeconds(1)))
+        .isInstanceOf(ConcurrencyLimitExceededException.class);
+    assertThat(filter.rejected()).isEqualTo(1);
+    assertThat(filter.inFlight()).isEqualTo(2);
+
+    first.dispose();
+    second.dispose();
+    assertThat(filter.inFlight()).isZero();
+  }
+
+  @Test
+  void slowResponses_lowerTheLimit() {
+    var filter = filter(10);
+    ExchangeFunction slow = request -> Mono.delay(Duration.ofMillis(100))
+        .map(tick -> ClientResponse.create(HttpStatus.OK).build());
+
+    filter.filter(REQUEST, slow).block(Duration.ofSeconds(1));
+
+    assertThat(filter.limit()).isEqualTo(5);
+  }
+
+  @Test
+  void overloadedResponses_lowerTheLimit() {
+    var filter = filter(10);
+    ExchangeFunction unavailable = request ->
+        Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+
+    filter.filter(REQUEST, unavailable).block(Duration.ofSeconds(1));
+
+    assertThat(filter.limit()).isEqualTo(5);
+  }
+
+  @Test
+  void fastResponses_raiseTheLimitOnlyWhileItIsInUse() {
+    var filter = filter(2);
+    ExchangeFunction fast = request -> Mono.just(ClientResponse.create(HttpStatus.OK).build());
+
+    // One request in flight with a limit of two is using half of it.
+    var pending = filter.filter(REQUEST, HANGS).subscribe();
+    filter.filter(REQUEST, fast).block(Duration.ofSeconds(1));
+    pending.dispose();
+    assertThat(filter.limit()).isEqualTo(3);
+
+    // Alone in flight, a request does not use enough of the limit to raise it.
+    filter.filter(REQUEST, fast).block(Duration.ofSeconds(1));
+    assertThat(filter.limit()).isEqualTo(3);
+  }
+
+  private static AdaptiveConcurrencyLimitFilter filter(int initialLimit) {
+    return new AdaptiveConcurrencyLimitFilter(initialLimit, 1, 100, Duration.ofMillis(50), 0.5);
+  }
+}
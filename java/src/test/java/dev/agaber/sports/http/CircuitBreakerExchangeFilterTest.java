@@ -0,0 +1,124 @@
+package dev.agaber.sports.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import dev.agaber.sports.http.CircuitBreakerExchangeFilter.State;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class CircuitBreakerExchangeFilterTest {
+  private static final Duration OPEN = Duration.ofMillis(200);
+
+  private final AtomicInteger upstreamCalls = new AtomicInteger();
+  private final CircuitBreakerExchangeFilter filter =
+      new CircuitBreakerExchangeFilter(4, 4, 0.5, OPEN, Duration.ofSeconds(1));
+
+  @Test
+  void failingEndpoint_opensItsBreaker() {
+    trip("venue");
+
+    assertThatThrownBy(() -> call("venue", HttpStatus.OK))
+        .isInstanceOf(CircuitBreakerOpenException.class);
+    assertThat(upstreamCalls).hasValue(4);
+    assertThat(filter.rejected()).isEqualTo(1);
+    assertThat(filter.transitions(State.OPEN)).isEqualTo(1);
+    assertThat(filter.notClosed()).isEqualTo(1);
+  }
+
+  @Test
+  void openBreaker_leavesOtherEndpointsAlone() {
+    trip("venue");
+
+    assertThat(call("roster", HttpStatus.OK).statusCode()).isEqualTo(HttpStatus.OK);
+  }
+
+  @Test
+  void successfulProbe_closesTheBreaker() throws Exception {
+    trip("venue");
+    Thread.sleep(OPEN.toMillis() + 50);
+
+    assertThat(call("venue", HttpStatus.OK).statusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(call("venue", HttpStatus.OK).statusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(filter.transitions(State.HALF_OPEN)).isEqualTo(1);
+    assertThat(filter.transitions(State.CLOSED)).isEqualTo(1);
+    assertThat(filter.notClosed()).isZero();
+  }
+
+  @Test
+  void failedProbe_opensTheBreakerAgain() throws Exception {
+    trip("venue");
+    Thread.sleep(OPEN.toMillis() + 50);
+
+    call("venue", HttpStatus.SERVICE_UNAVAILABLE);
+
+    assertThatThrownBy(() -> call("venue", HttpStatus.OK))
+        .isInstanceOf(CircuitBreakerOpenException.class);
+    assertThat(filter.transitions(State.OPEN)).isEqualTo(2);
+  }
+
+  @Test
+  void halfOpenBreaker_letsOneProbeThroughAtATime() throws Exception {
+    trip("venue");
+    Thread.sleep(OPEN.toMillis() + 50);
+
+    var probe = filter.filter(request("venue"), request -> Mono.never()).subscribe();
+    assertThatThrownBy(() -> call("venue", HttpStatus.OK))
+        .isInstanceOf(CircuitBreakerOpenException.class);
+
+    // A cancelled probe says nothing about statsapi, so the next request gets to probe instead.
+    probe.dispose();
+    assertThat(call("venue", HttpStatus.OK).statusCode()).isEqualTo(HttpStatus.OK);
+  }
+
+  @Test
+  void mostlySuccessfulCalls_keepTheBreakerClosed() {
+    call("venue", HttpStatus.OK);
+    call("venue", HttpStatus.OK);
+    call("venue", HttpStatus.OK);
+    call("venue", HttpStatus.INTERNAL_SERVER_ERROR);
+
+    assertThat(call("venue", HttpStatus.OK).statusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(filter.transitions(State.OPEN)).isZero();
+  }
+
+  @Test
+  void rejectionsFromFurtherDown_doNotCount() {
+    ExchangeFunction limited = request -> Mono.error(new ConcurrencyLimitExceededException(1));
+    for (var i = 0; i < 4; i++) {
+      assertThatThrownBy(() -> filter.filter(request("venue"), limited).block())
+          .isInstanceOf(ConcurrencyLimitExceededException.class);
+    }
+
+    assertThat(call("venue", HttpStatus.OK).statusCode()).isEqualTo(HttpStatus.OK);
+  }
+
+  private void trip(String endpoint) {
+    for (var i = 0; i < 4; i++) {
+      call(endpoint, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+  }
+
+  private ClientResponse call(String endpoint, HttpStatus status) {
+    ExchangeFunction upstream = request -> {
+      upstreamCalls.incrementAndGet();
+      return Mono.just(ClientResponse.create(status).build());
+    };
+    return filter.filter(request(endpoint), upstream).block(Duration.ofSeconds(1));
+  }
+
+  private static ClientRequest request(String endpoint) {
+    return ClientRequest.create(HttpMethod.GET, URI.create("http://localhost/" + endpoint))
+        .attribute(RequestAttributes.ENDPOINT, endpoint)
+        .build();
+  }
+}
@@ -0,0 +1,131 @@
+package dev.agaber.sports.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+final class CoalescingExchangeFilterTest {
+  private static final URI TEAM_URI = URI.create("http://localhost/api/v1/teams/137");
+
+  private final AtomicInteger upstreamCalls = new AtomicInteger();
+  private final ExchangeFunction upstream = request -> Mono.delay(Duration.ofMillis(50))
+      .map(tick -> ClientResponse.create(HttpStatus.OK)
+          .body("call-" + upstreamCalls.incrementAndGet())
+          .build());
+
+  private final CoalescingExchangeFilter filter = new CoalescingExchangeFilter(1024);
+
+  @Test
+  void concurrentGets_shareOneExchange() {
+    var bodies = Mono.zip(fetch(HttpMethod.GET), fetch(HttpMethod.GET), fetch(HttpMethod.GET))
+        .block(Duration.ofSeconds(2));
+
+    assertThat(upstreamCalls).hasValue(1);
+    assertThat(bodies.getT1()).isEqualTo("call-1");
+    assertThat(bodies.getT2()).isEqualTo("call-1");
+    assertThat(bodies.getT3()).isEqualTo("call-1");
+    assertThat(filter.misses()).isEqualTo(1);
+    assertThat(filter.hits()).isEqualTo(2);
+  }
+
+  @Test
+  void sequentialGets_eachGoUpstream() {
+    assertThat(fetch(HttpMethod.GET).block(Duration.ofSeconds(2))).isEqualTo("call-1");
+    assertThat(fetch(HttpMethod.GET).block(Duration.ofSeconds(2))).isEqualTo("call-2");
+    assertThat(filter.misses()).isEqualTo(2);
+    assertThat(filter.hits()).isZero();
+  }
+
+  @Test
+  void nonGetRequests_areNotCoalesced() {
+    Mono.zip(fetch(HttpMethod.POST), fetch(HttpMethod.POST)).block(Duration.ofSeconds(2));
+    assertThat(upstreamCalls).hasValue(2);
+    assertThat(filter.misses()).isZero();
+  }
+
+  @Test
+  void streamedGets_areNotCoalesced() {
+    var request = ClientRequest.create(HttpMethod.GET, TEAM_URI)
+        .attribute(RequestAttributes.STREAMED, true)
+        .build();
+
+    Mono.zip(filter.filter(request, upstream), filter.filter(request, upstream))
+        .flatMap(responses -> Mono.zip(
+            responses.getT1().bodyToMono(String.class),
+            responses.getT2().bodyToMono(String.class)))
+        .block(Duration.ofSeconds(2));
+
+    assertThat(upstreamCalls).hasValue(2);
+    assertThat(filter.misses()).isZero();
+  }
+
+  @Test
+  void sharedExchange_dropsFirstCallersDeadline() {
+    var sent = new AtomicReference<ClientRequest>();
+    var deadlineUpstream = new AtomicBoolean();
+    ExchangeFunction capturing = request -> Mono.deferContextual(context -> {
+      sent.set(request);
+      deadlineUpstream.set(Deadline.current(context).isPresent());
+      return upstream.exchange(request);
+    });
+    var request = ClientRequest.create(HttpMethod.GET, TEAM_URI)
+        .httpRequest(httpRequest -> {})
+        .build();
+
+    filter.filter(request, capturing)
+        .contextWrite(Deadline.within(Duration.ofSeconds(1)))
+        .block(Duration.ofSeconds(2));
+
+    assertThat(sent.get().httpRequest()).isNull();
+    assertThat(deadlineUpstream).isFalse();
+  }
+
+  @Test
+  void followerWithLaterDeadline_outlivesLeader() {
+    var leader = fetch(HttpMethod.GET).timeout(Duration.ofMillis(10));
+    var follower = fetch(HttpMethod.GET);
+
+    var results = Mono.zip(
+            leader.onErrorResume(TimeoutException.class, e -> Mono.just("timed out")),
+            follower)
+        .block(Duration.ofSeconds(2));
+
+    assertThat(results.getT1()).isEqualTo("timed out");
+    assertThat(results.getT2()).isEqualTo("call-1");
+    assertThat(upstreamCalls).hasValue(1);
+  }
+
+  @Test
+  void upstream_cancelledOnlyOnceEveryCallerHas() {
+    var cancelled = new AtomicBoolean();
+    ExchangeFunction hangs = request -> Mono.<ClientResponse>never()
+        .doOnCancel(() -> cancelled.set(true));
+    var request = ClientRequest.create(HttpMethod.GET, TEAM_URI).build();
+
+    var first = filter.filter(request, hangs).subscribe();
+    var second = filter.filter(request, hangs).subscribe();
+    first.dispose();
+    assertThat(cancelled).isFalse();
+
+    second.dispose();
+    assertThat(cancelled).isTrue();
+  }
+
+  private Mono<String> fetch(HttpMethod method) {
+    var request = ClientRequest.create(method, TEAM_URI).build();
+    return filter.filter(request, upstream).flatMap(response -> response.bodyToMono(String.class));
+  }
+}
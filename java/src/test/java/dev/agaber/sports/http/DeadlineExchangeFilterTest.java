@@ -0,0 +1,89 @@
+package dev.agaber.sports.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class DeadlineExchangeFilterTest {
+  private static final ClientRequest REQUEST =
+      ClientRequest.create(HttpMethod.GET, URI.create("http://localhost/api/v1/venues/2395"))
+          .build();
+
+  private final AtomicInteger upstreamCalls = new AtomicInteger();
+  private final AtomicBoolean cancelled = new AtomicBoolean();
+  private final DeadlineExchangeFilter filter = new DeadlineExchangeFilter();
+
+  @Test
+  void noDeadline_passesThrough() {
+    var response = filter.filter(REQUEST, upstream(Duration.ofMillis(50)))
+        .block(Duration.ofSeconds(1));
+
+    assertThat(response.statusCode()).isEqualTo(HttpStatus.OK);
+  }
+
+  @Test
+  void responseWithinDeadline_isReturned() {
+    var response = filter.filter(REQUEST, upstream(Duration.ofMillis(10)))
+        .contextWrite(Deadline.within(Duration.ofSeconds(1)))
+        .block(Duration.ofSeconds(1));
+
+    assertThat(response.statusCode()).isEqualTo(HttpStatus.OK);
+  }
+
+  @Test
+  void slowResponse_isCancelledAtDeadline() {
+    var start = System.nanoTime();
+
+    assertThatThrownBy(() -> filter.filter(REQUEST, upstream(Duration.ofSeconds(5)))
+        .contextWrite(Deadline.within(Duration.ofMillis(100)))
+        .block(Duration.ofSeconds(1)))
+        .isInstanceOf(DeadlineExceededException.class);
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+    assertThat(cancelled).isTrue();
+  }
+
+  @Test
+  void expiredDeadline_isNotSent() {
+    var expired = Deadline.after(Duration.ofMillis(-1));
+
+    assertThatThrownBy(() -> filter.filter(REQUEST, upstream(Duration.ZERO))
+        .contextWrite(Context.of(Deadline.class, expired))
+        .block(Duration.ofSeconds(1)))
+        .isInstanceOf(DeadlineExceededException.class);
+    assertThat(upstreamCalls).hasValue(0);
+  }
+
+  @Test
+  void within_keepsAnEarlierDeadline() {
+    var earlier = Deadline.after(Duration.ofMillis(100));
+
+    var deadline = Mono.deferContextual(context -> Mono.just(Deadline.current(context).get()))
+        .contextWrite(Deadline.within(Duration.ofSeconds(10)))
+        .contextWrite(Context.of(Deadline.class, earlier))
+        .block(Duration.ofSeconds(1));
+
+    assertThat(deadline).isSameAs(earlier);
+  }
+
+  private ExchangeFunction upstream(Duration latency) {
+    return request -> {
+      upstreamCalls.incrementAndGet();
+      return Mono.delay(latency)
+          .map(tick -> ClientResponse.create(HttpStatus.OK).build())
+          .doOnCancel(() -> cancelled.set(true));
+    };
+  }
+}
@@ -0,0 +1,181 @@
+package dev.agaber.sports.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import dev.agaber.sports.http.DiskResponseStore.StoredResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+
+final class DiskResponseStoreTest {
+  private static final String ROSTER_KEY = "http://localhost/api/v1/teams/137/roster";
+  private static final String VENUE_KEY = "http://localhost/api/v1/venues/2395";
+
+  private final Clock clock = Clock.systemUTC();
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void reopen_servesPreviouslyStoredResponses() throws IOException {
+    var path = tempDir.resolve("responses.db");
+    try (var store = DiskResponseStore.open(path, 4096, clock)) {
+      store.put(ROSTER_KEY, response("roster"), inOneHour());
+      store.put(VENUE_KEY, response("venue"), inOneHour());
+    }
+
+    try (var store = DiskResponseStore.open(path, 4096, clock)) {
+      assertThat(store.size()).isEqualTo(2);
+      var roster = store.get(ROSTER_KEY).orElseThrow();
+      assertThat(roster.status()).isEqualTo(200);
+      assertThat(roster.headers().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+      assertThat(new String(roster.body(), StandardCharsets.UTF_8)).isEqualTo("roster");
+    }
+  }
+
+  @Test
+  void reopen_latestWriteWins() throws IOException {
+    var path = tempDir.resolve("responses.db");
+    try (var store = DiskResponseStore.open(path, 4096, clock)) {
+      store.put(ROSTER_KEY, response("old"), inOneHour());
+      store.put(ROSTER_KEY, response("new"), inOneHour());
+    }
+
+    try (var store = DiskResponseStore.open(path, 4096, clock)) {
+      assertThat(body(store, ROSTER_KEY)).isEqualTo("new");
+    }
+  }
+
+  @Test
+  void reopen_corruptRecord_truncatesAndKeepsEarlierRecords() throws IOException {
+    var path = tempDir.resolve("responses.db");
+    try (var store = DiskResponseStore.open(path, 4096, clock)) {
+      store.put(ROSTER_KEY, response("roster"), inOneHour());
+      store.put(VENUE_KEY, response("venue"), inOneHour());
+    }
+    // Flip the last byte of the venue body, which breaks the second record's checksum.
+    var venueBodyEnd = indexOf(path, "venue".getBytes(StandardCharsets.UTF_8), 2) + 4;
+    try (var file = new RandomAccessFile(path.toFile(), "rw")) {
+      file.seek(venueBodyEnd);
+      file.write('X');
+    }
+
+    try (var store = DiskResponseStore.open(path, 4096, clock)) {
+      assertThat(body(store, ROSTER_KEY)).isEqualTo("roster");
+      assertThat(store.get(VENUE_KEY)).isEmpty();
+
+      store.put(VENUE_KEY, response("venue again"), inOneHour());
+    }
+
+    try (var store = DiskResponseStore.open(path, 4096, clock)) {
+      assertThat(body(store, VENUE_KEY)).isEqualTo("venue again");
+    }
+  }
+
+  @Test
+  void expiredRecords_notServed() throws IOException {
+    try (var store = DiskResponseStore.open(tempDir.resolve("responses.db"), 4096, clock)) {
+      store.put(ROSTER_KEY, response("roster"), clock.instant().minusSeconds(1));
+      assertThat(store.get(ROSTER_KEY)).isEmpty();
+    }
+  }
+
+  @Test
+  void full_compactsOverwrittenRecordsBeforeEvicting() throws IOException {
+    try (var store = DiskResponseStore.open(tempDir.resolve("responses.db"), 1024, clock)) {
+      for (var i = 0; i < 50; i++) {
+        store.put(ROSTER_KEY, response("roster-" + i), inOneHour());
+      }
+
+      assertThat(store.compactions()).isPositive();
+      assertThat(store.evictions()).isZero();
+      assertThat(body(store, ROSTER_KEY)).isEqualTo("roster-49");
+    }
+  }
+
+  @Test
+  void full_evictsOldestLiveRecords() throws IOException {
+    var path = tempDir.resolve("responses.db");
+    try (var store = DiskResponseStore.open(path, 1024, clock)) {
+      for (var i = 0; i < 50; i++) {
+        store.put("http://localhost/api/v1/teams/" + i, response("team-" + i), inOneHour());
+      }
+
+      assertThat(store.evictions()).isPositive();
+      assertThat(store.get("http://localhost/api/v1/teams/0")).isEmpty();
+      assertThat(body(store, "http://localhost/api/v1/teams/49")).isEqualTo("team-49");
+    }
+
+    try (var store = DiskResponseStore.open(path, 1024, clock)) {
+      assertThat(body(store, "http://localhost/api/v1/teams/49")).isEqualTo("team-49");
+    }
+  }
+
+  @Test
+  void open_whileAnotherStoreHasIt_throwsLocked() throws IOException {
+    var path = tempDir.resolve("responses.db");
+    try (var store = DiskResponseStore.open(path, 4096, clock)) {
+      assertThatThrownBy(() -> DiskResponseStore.open(path, 4096, clock))
+          .isInstanceOf(DiskCacheLockedException.class);
+    }
+
+    // Closing the store releases the lock.
+    DiskResponseStore.open(path, 4096, clock).close();
+  }
+
+  @Test
+  void compactionFails_dropsNewRecordAndKeepsServing() throws IOException {
+    var path = tempDir.resolve("responses.db");
+    // A non-empty directory where compaction writes its copy makes every compaction fail.
+    Files.createDirectories(tempDir.resolve("responses.db.compact"));
+    Files.writeString(tempDir.resolve("responses.db.compact/blocker"), "");
+    try (var store = DiskResponseStore.open(path, 1024, clock)) {
+      for (var i = 0; i < 50; i++) {
+        store.put(ROSTER_KEY, response("roster-" + i), inOneHour());
+      }
+
+      assertThat(store.compactions()).isZero();
+      assertThat(body(store, ROSTER_KEY)).startsWith("roster-");
+      assertThat(body(store, ROSTER_KEY)).isNotEqualTo("roster-49");
+    }
+  }
+
+  private Instant inOneHour() {
+    return clock.instant().plus(Duration.ofHours(1));
+  }
+
+  private static StoredResponse response(String body) {
+    var headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    return new StoredResponse(200, headers, body.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String body(DiskResponseStore store, String key) {
+    return new String(store.get(key).orElseThrow().body(), StandardCharsets.UTF_8);
+  }
+
+  /** Offset of the nth occurrence of {@code needle}; keys and bodies both contain "venue". */
+  private static int indexOf(Path path, byte[] needle, int occurrence) throws IOException {
+    var haystack = Files.readAllBytes(path);
+    var seen = 0;
+    for (var i = 0; i <= haystack.length - needle.length; i++) {
+      if (Arrays.equals(haystack, i, i + needle.length, needle, 0, needle.length)
+          && ++seen == occurrence) {
+        return i;
+      }
+    }
+    throw new AssertionError("Not found");
+  }
+}
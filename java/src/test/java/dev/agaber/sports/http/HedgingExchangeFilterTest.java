@@ -0,0 +1,165 @@
+package dev.agaber.sports.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.agaber.sports.testing.StatsApiStub;
+import dev.agaber.sports.testing.StatsApiStub.LatencyDistribution;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+final class HedgingExchangeFilterTest {
+  private static final String ROSTER_PATH = "/api/v1/teams/137/roster";
+  private static final Duration FAST = Duration.ofMillis(5);
+  private static final Duration SLOW = Duration.ofMillis(300);
+  private static final Duration HEDGE_DELAY = Duration.ofMillis(100);
+  private static final int REQUESTS = 40;
+
+  private StatsApiStub stub;
+
+  @BeforeEach
+  void beforeEach() {
+    // Bimodal, but deterministic: every fifth roster request is slow. Requests are sent one at a
+    // time, so a hedge for a slow request always lands on a fast one.
+    var count = new AtomicLong();
+    LatencyDistribution everyFifthSlow = () -> count.getAndIncrement() % 5 == 0 ? SLOW : FAST;
+    stub = StatsApiStub.start(StatsApiStub.Options.builder()
+        .latencyByPath(Map.of(ROSTER_PATH, everyFifthSlow))
+        .build());
+  }
+
+  @AfterEach
+  void afterEach() {
+    stub.close();
+  }
+
+  @Test
+  void withoutHedging_slowResponsesReachTheCaller() {
+    var latencies = fetchRosters(WebClient.create());
+
+    assertThat(percentile(latencies, 0.9)).isGreaterThanOrEqualTo(SLOW);
+    assertThat(stub.requests(ROSTER_PATH)).isEqualTo(REQUESTS);
+  }
+
+  @Test
+  void hedging_cutsTheTail() {
+    var filter = new HedgingExchangeFilter(
+        Set.of("roster"),
+        0.9,
+        HEDGE_DELAY,
+        new RequestBudget(1, 0, 10));
+
+    var latencies = fetchRosters(webClient(filter));
+
+    assertThat(percentile(latencies, 0.9)).isLessThan(SLOW);
+    assertThat(percentile(latencies, 1)).isLessThan(SLOW);
+    assertThat(filter.hedges()).isGreaterThanOrEqualTo(REQUESTS / 5);
+    assertThat(filter.hedgeWins()).isEqualTo(filter.hedges());
+    assertThat(stub.requests(ROSTER_PATH)).isEqualTo(REQUESTS + filter.hedges());
+  }
+
+  @Test
+  void hedging_countsCancelledLosersTowardsTheDelay() {
+    var filter = new HedgingExchangeFilter(
+        Set.of("roster"),
+        0.9,
+        HEDGE_DELAY,
+        new RequestBudget(1, 0, 10));
+
+    fetchRosters(webClient(filter));
+
+    // Only the winners are fast. Every slow primary ran past the hedge delay before it lost, and
+    // one in six samples being that slow puts the 90th percentile past it too.
+    assertThat(filter.hedges()).isGreaterThanOrEqualTo(REQUESTS / 5);
+    assertThat(filter.delay("roster")).isGreaterThan(HEDGE_DELAY);
+  }
+
+  @Test
+  void hedging_doesNotSampleLosingHedges() {
+    var latency = Duration.ofMillis(150);
+    stub.close();
+    stub = StatsApiStub.start(StatsApiStub.Options.builder()
+        .latencyByPath(Map.of(ROSTER_PATH, () -> latency))
+        .build());
+    var filter = new HedgingExchangeFilter(
+        Set.of("roster"),
+        0.5,
+        Duration.ofMillis(50),
+        new RequestBudget(1, 0, 10));
+
+    fetchRosters(webClient(filter), 16);
+
+    // Every request is hedged until there are enough samples, and every hedge loses 100ms in. Had
+    // those been sampled, half the samples would be that short and so would the median.
+    assertThat(filter.hedges()).isEqualTo(16);
+    assertThat(filter.hedgeWins()).isZero();
+    assertThat(filter.delay("roster")).isGreaterThanOrEqualTo(latency);
+  }
+
+  @Test
+  void hedging_stopsWhenBudgetIsSpent() {
+    var filter = new HedgingExchangeFilter(
+        Set.of("roster"),
+        0.9,
+        HEDGE_DELAY,
+        new RequestBudget(0, 0, 10));
+
+    var latencies = fetchRosters(webClient(filter));
+
+    assertThat(percentile(latencies, 0.9)).isGreaterThanOrEqualTo(SLOW);
+    assertThat(filter.hedges()).isZero();
+    assertThat(filter.budget().denied()).isGreaterThanOrEqualTo(REQUESTS / 5);
+  }
+
+  @Test
+  void otherEndpoints_areNotHedged() {
+    var filter = new HedgingExchangeFilter(
+        Set.of("venue"),
+        0.9,
+        HEDGE_DELAY,
+        new RequestBudget(1, 0, 10));
+
+    fetchRosters(webClient(filter));
+
+    assertThat(filter.hedges()).isZero();
+    assertThat(stub.requests(ROSTER_PATH)).isEqualTo(REQUESTS);
+  }
+
+  private static WebClient webClient(ExchangeFilterFunction filter) {
+    return WebClient.builder().filter(filter).build();
+  }
+
+  private Duration[] fetchRosters(WebClient webClient) {
+    return fetchRosters(webClient, REQUESTS);
+  }
+
+  private Duration[] fetchRosters(WebClient webClient, int requests) {
+    var latencies = new Duration[requests];
+    for (var i = 0; i < requests; i++) {
+      var start = System.nanoTime();
+      webClient.get()
+          .uri(stub.baseUrl() + ROSTER_PATH)
+          .attribute(RequestAttributes.ENDPOINT, "roster")
+          .retrieve()
+          .bodyToMono(String.class)
+          .block(Duration.ofSeconds(2));
+      latencies[i] = Duration.ofNanos(System.nanoTime() - start);
+    }
+    return latencies;
+  }
+
+  private static Duration percentile(Duration[] latencies, double percentile) {
+    var sorted = latencies.clone();
+    Arrays.sort(sorted);
+    var index = (int) Math.ceil(percentile * sorted.length) - 1;
+    return sorted[Math.max(0, index)];
+  }
+}
@@ -0,0 +1,207 @@
+package dev.agaber.sports.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+final class HttpCacheFilterTest {
+  private static final URI ROSTER_URI = URI.create("http://localhost/api/v1/teams/137/roster");
+  private static final URI VENUE_URI = URI.create("http://localhost/api/v1/venues/2395");
+
+  private final List<ClientRequest> upstreamRequests = new ArrayList<>();
+
+  @Test
+  void freshResponse_servedFromMemory() {
+    var filter = new HttpCacheFilter(Clock.systemUTC(), 1024, 1024);
+    ExchangeFunction upstream = respondWith("max-age=60", null);
+
+    assertThat(fetch(filter, upstream, ROSTER_URI)).isEqualTo("body-1");
+    assertThat(fetch(filter, upstream, ROSTER_URI)).isEqualTo("body-1");
+
+    assertThat(upstreamRequests).hasSize(1);
+    assertThat(filter.hits()).isEqualTo(1);
+    assertThat(filter.misses()).isEqualTo(1);
+  }
+
+  @Test
+  void streamedRequest_notCached() {
+    var filter = new HttpCacheFilter(Clock.systemUTC(), 1024, 1024);
+    ExchangeFunction upstream = respondWith("max-age=60", null);
+    var request = ClientRequest.create(HttpMethod.GET, ROSTER_URI)
+        .attribute(RequestAttributes.STREAMED, true)
+        .build();
+
+    for (var i = 1; i <= 2; i++) {
+      assertThat(filter.filter(request, upstream)
+          .flatMap(response -> response.bodyToMono(String.class))
+          .block(Duration.ofSeconds(2)))
+          .isEqualTo("body-" + i);
+    }
+
+    assertThat(upstreamRequests).hasSize(2);
+    assertThat(filter.misses()).isZero();
+  }
+
+  @Test
+  void staleResponse_revalidatedWithETag() {
+    var filter = new HttpCacheFilter(Clock.systemUTC(), 1024, 1024);
+    ExchangeFunction upstream = request -> {
+      upstreamRequests.add(request);
+      if (request.headers().getIfNoneMatch().contains("\"v1\"")) {
+        return Mono.just(ClientResponse.create(HttpStatus.NOT_MODIFIED).build());
+      }
+      return Mono.just(ClientResponse.create(HttpStatus.OK)
+          .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+          .header(HttpHeaders.ETAG, "\"v1\"")
+          .body("roster")
+          .build());
+    };
+
+    assertThat(fetch(filter, upstream, ROSTER_URI)).isEqualTo("roster");
+    assertThat(fetch(filter, upstream, ROSTER_URI)).isEqualTo("roster");
+
+    assertThat(upstreamRequests).hasSize(2);
+    assertThat(upstreamRequests.get(0).headers().getIfNoneMatch()).isEmpty();
+    assertThat(upstreamRequests.get(1).headers().getIfNoneMatch()).containsExactly("\"v1\"");
+    assertThat(filter.revalidations()).isEqualTo(1);
+  }
+
+  @Test
+  void noStoreResponse_notCached() {
+    var filter = new HttpCacheFilter(Clock.systemUTC(), 1024, 1024);
+    ExchangeFunction upstream = respondWith("no-store", "\"v1\"");
+
+    fetch(filter, upstream, ROSTER_URI);
+    fetch(filter, upstream, ROSTER_URI);
+
+    assertThat(upstreamRequests).hasSize(2);
+    assertThat(upstreamRequests.get(1).headers().getIfNoneMatch()).isEmpty();
+    assertThat(filter.sizeBytes()).isZero();
+  }
+
+  @Test
+  void agedResponse_freshOnlyForWhatIsLeftOfMaxAge() {
+    var filter = new HttpCacheFilter(Clock.systemUTC(), 1024, 1024);
+    ExchangeFunction upstream = request -> {
+      upstreamRequests.add(request);
+      return Mono.just(ClientResponse.create(HttpStatus.OK)
+          .header(HttpHeaders.CACHE_CONTROL, "max-age=60")
+          .header(HttpHeaders.AGE, "60")
+          .body("body-" + upstreamRequests.size())
+          .build());
+    };
+
+    assertThat(fetch(filter, upstream, ROSTER_URI)).isEqualTo("body-1");
+    assertThat(fetch(filter, upstream, ROSTER_URI)).isEqualTo("body-2");
+
+    assertThat(filter.hits()).isZero();
+  }
+
+  @Test
+  void varyResponse_servedOnlyForTheSameVariedHeaders() {
+    var filter = new HttpCacheFilter(Clock.systemUTC(), 1024, 1024);
+    ExchangeFunction upstream = request -> {
+      upstreamRequests.add(request);
+      return Mono.just(ClientResponse.create(HttpStatus.OK)
+          .header(HttpHeaders.CACHE_CONTROL, "max-age=60")
+          .header(HttpHeaders.VARY, "Accept-Language")
+          .body("body-" + upstreamRequests.size())
+          .build());
+    };
+
+    assertThat(fetch(filter, upstream, ROSTER_URI, "en")).isEqualTo("body-1");
+    assertThat(fetch(filter, upstream, ROSTER_URI, "en")).isEqualTo("body-1");
+    assertThat(fetch(filter, upstream, ROSTER_URI, "es")).isEqualTo("body-2");
+
+    assertThat(upstreamRequests).hasSize(2);
+    assertThat(filter.hits()).isEqualTo(1);
+  }
+
+  @Test
+  void varyStarResponse_notCached() {
+    var filter = new HttpCacheFilter(Clock.systemUTC(), 1024, 1024);
+    ExchangeFunction upstream = request -> {
+      upstreamRequests.add(request);
+      return Mono.just(ClientResponse.create(HttpStatus.OK)
+          .header(HttpHeaders.CACHE_CONTROL, "max-age=60")
+          .header(HttpHeaders.VARY, "*")
+          .body("roster")
+          .build());
+    };
+
+    fetch(filter, upstream, ROSTER_URI);
+    fetch(filter, upstream, ROSTER_URI);
+
+    assertThat(upstreamRequests).hasSize(2);
+    assertThat(filter.sizeBytes()).isZero();
+  }
+
+  @Test
+  void overBudget_evictsLeastRecentlyUsed() {
+    // Each entry is 29 bytes of headers and body, so only two fit.
+    var filter = new HttpCacheFilter(Clock.systemUTC(), 70, 1024);
+    ExchangeFunction upstream = respondWith("max-age=60", null);
+    var teamUri = URI.create("http://localhost/api/v1/teams/137");
+
+    fetch(filter, upstream, ROSTER_URI);
+    fetch(filter, upstream, VENUE_URI);
+    fetch(filter, upstream, ROSTER_URI);
+    fetch(filter, upstream, teamUri);
+
+    assertThat(filter.evictions()).isEqualTo(1);
+    assertThat(filter.sizeBytes()).isLessThanOrEqualTo(70);
+    fetch(filter, upstream, ROSTER_URI);
+    assertThat(upstreamRequests).extracting(ClientRequest::url)
+        .containsExactly(ROSTER_URI, VENUE_URI, teamUri);
+  }
+
+  private ExchangeFunction respondWith(String cacheControl, String eTag) {
+    return request -> {
+      upstreamRequests.add(request);
+      var response = ClientResponse.create(HttpStatus.OK)
+          .header(HttpHeaders.CACHE_CONTROL, cacheControl)
+          .body("body-" + upstreamRequests.size());
+      if (eTag != null) {
+        response.header(HttpHeaders.ETAG, eTag);
+      }
+      return Mono.just(response.build());
+    };
+  }
+
+  private static String fetch(HttpCacheFilter filter, ExchangeFunction upstream, URI uri) {
+    return fetch(filter, upstream, ClientRequest.create(HttpMethod.GET, uri).build());
+  }
+
+  private static String fetch(
+      HttpCacheFilter filter,
+      ExchangeFunction upstream,
+      URI uri,
+      String acceptLanguage) {
+    var request = ClientRequest.create(HttpMethod.GET, uri)
+        .header(HttpHeaders.ACCEPT_LANGUAGE, acceptLanguage)
+        .build();
+    return fetch(filter, upstream, request);
+  }
+
+  private static String fetch(
+      HttpCacheFilter filter,
+      ExchangeFunction upstream,
+      ClientRequest request) {
+    return filter.filter(request, upstream)
+        .flatMap(response -> response.bodyToMono(String.class))
+        .block(Duration.ofSeconds(2));
+  }
+}
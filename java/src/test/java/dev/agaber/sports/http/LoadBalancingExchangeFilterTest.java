@@ -0,0 +1,148 @@
+package dev.agaber.sports.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.agaber.sports.http.LoadBalancingExchangeFilter.Mirror;
+import dev.agaber.sports.testing.StatsApiStub;
+import dev.agaber.sports.testing.StatsApiStub.LatencyDistribution;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+final class LoadBalancingExchangeFilterTest {
+  // Never resolved: every request is rewritten to one of the stubs.
+  private static final String STATSAPI_URL = "http://statsapi.invalid";
+  private static final String VENUE_PATH = "/api/v1/venues/2395";
+  private static final Duration EJECT_DURATION = Duration.ofMillis(200);
+
+  private final List<StatsApiStub> stubs = new ArrayList<>();
+
+  @AfterEach
+  void afterEach() {
+    stubs.forEach(StatsApiStub::close);
+  }
+
+  @Test
+  void sequentialRequests_driftToTheFastestMirror() {
+    var fast = stub(Duration.ofMillis(5));
+    var slow = stub(Duration.ofMillis(100));
+    var filter = filter(fast.baseUrl(), slow.baseUrl());
+
+    for (var i = 0; i < 40; i++) {
+      fetchVenue(filter).block(Duration.ofSeconds(2));
+    }
+
+    // Each mirror is tried once, and the slow one's latency then keeps it out of the way.
+    assertThat(slow.requests(VENUE_PATH)).isBetween(1L, 2L);
+    assertThat(fast.requests(VENUE_PATH)).isGreaterThanOrEqualTo(38);
+    assertThat(mirror(filter, fast).latency()).isLessThan(mirror(filter, slow).latency());
+  }
+
+  @Test
+  void concurrentRequests_spreadByRequestsInFlight() {
+    var first = stub(Duration.ofMillis(100));
+    var second = stub(Duration.ofMillis(100));
+    var filter = filter(first.baseUrl(), second.baseUrl());
+
+    Flux.range(0, 20).flatMap(i -> fetchVenue(filter)).blockLast(Duration.ofSeconds(2));
+
+    assertThat(first.requests(VENUE_PATH)).isGreaterThanOrEqualTo(5);
+    assertThat(second.requests(VENUE_PATH)).isGreaterThanOrEqualTo(5);
+    assertThat(filter.mirrors()).extracting(Mirror::outstanding).containsOnly(0);
+  }
+
+  @Test
+  void failingMirror_isEjectedThenProbedBackIn() throws InterruptedException {
+    var healthy = stub(Duration.ZERO);
+    var failing = StatsApiStub.start(StatsApiStub.Options.builder().errorRate(1).build());
+    stubs.add(failing);
+    var filter = filter(healthy.baseUrl(), failing.baseUrl());
+
+    for (var i = 0; i < 20; i++) {
+      fetchVenue(filter).onErrorResume(e -> Mono.empty()).block(Duration.ofSeconds(2));
+    }
+    var failingMirror = mirror(filter, failing);
+    assertThat(failingMirror.isEjected()).isTrue();
+    assertThat(failingMirror.ejections()).isEqualTo(1);
+    assertThat(failing.requests(VENUE_PATH)).isEqualTo(2);
+
+    // Still failing when probed, so it goes straight back out.
+    Thread.sleep(EJECT_DURATION.toMillis() + 50);
+    fetchVenue(filter).onErrorResume(e -> Mono.empty()).block(Duration.ofSeconds(2));
+    assertThat(failingMirror.ejections()).isEqualTo(2);
+    assertThat(failing.requests(VENUE_PATH)).isEqualTo(3);
+
+    // Recovered by the next probe, so it takes traffic again.
+    var port = URI.create(failing.baseUrl()).getPort();
+    failing.close();
+    stubs.add(StatsApiStub.start(StatsApiStub.Options.builder().port(port).build()));
+    Thread.sleep(EJECT_DURATION.toMillis() + 50);
+    fetchVenue(filter).block(Duration.ofSeconds(2));
+    assertThat(failingMirror.isEjected()).isFalse();
+  }
+
+  @Test
+  void everyMirrorEjected_stillSendsRequests() {
+    var failing = StatsApiStub.start(StatsApiStub.Options.builder().errorRate(1).build());
+    stubs.add(failing);
+    var filter = filter(failing.baseUrl());
+
+    for (var i = 0; i < 5; i++) {
+      fetchVenue(filter).onErrorResume(e -> Mono.empty()).block(Duration.ofSeconds(2));
+    }
+
+    assertThat(failing.requests(VENUE_PATH)).isEqualTo(5);
+  }
+
+  @Test
+  void baseUrlPath_isPutInFrontOfTheRequestPath() {
+    var stub = stub(Duration.ZERO);
+    var filter = filter(stub.baseUrl() + "/statsapi/");
+
+    fetchVenue(filter).onErrorResume(e -> Mono.empty()).block(Duration.ofSeconds(2));
+
+    assertThat(stub.requests("/statsapi" + VENUE_PATH)).isEqualTo(1);
+  }
+
+  private StatsApiStub stub(Duration latency) {
+    var stub = StatsApiStub.start(StatsApiStub.Options.builder()
+        .latency(LatencyDistribution.fixed(latency))
+        .build());
+    stubs.add(stub);
+    return stub;
+  }
+
+  private static LoadBalancingExchangeFilter filter(String... baseUrls) {
+    return new LoadBalancingExchangeFilter(
+        Arrays.stream(baseUrls).map(URI::create).toList(),
+        Duration.ofSeconds(10),
+        2,
+        EJECT_DURATION);
+  }
+
+  private static Mirror mirror(LoadBalancingExchangeFilter filter, StatsApiStub stub) {
+    return filter.mirrors().stream()
+        .filter(mirror -> mirror.baseUrl().toString().equals(stub.baseUrl()))
+        .findFirst()
+        .orElseThrow();
+  }
+
+  private static Mono<String> fetchVenue(LoadBalancingExchangeFilter filter) {
+    return WebClient.builder()
+        .filter(filter)
+        .build()
+        .get()
+        .uri(STATSAPI_URL + VENUE_PATH)
+        .attribute(RequestAttributes.ENDPOINT, "venue")
+        .retrieve()
+        .bodyToMono(String.class);
+  }
+}
@@ -0,0 +1,82 @@
+package dev.agaber.sports.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+
+final class MetricsExchangeFilterTest {
+  private static final URI ROSTER_URI = URI.create("http://localhost/api/v1/teams/137/roster");
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final MetricsExchangeFilter filter = new MetricsExchangeFilter(registry);
+
+  @Test
+  void response_recordsTimerAndBodySizeByEndpoint() {
+    ExchangeFunction upstream = request ->
+        Mono.just(ClientResponse.create(HttpStatus.OK).body("0123456789").build());
+
+    var body = filter.filter(rosterRequest(), upstream)
+        .flatMap(response -> response.bodyToMono(String.class))
+        .block(Duration.ofSeconds(2));
+
+    assertThat(body).isEqualTo("0123456789");
+    var timer = registry.get(MetricsExchangeFilter.REQUESTS)
+        .tag("endpoint", "roster")
+        .tag("status", "200")
+        .timer();
+    assertThat(timer.count()).isEqualTo(1);
+    var size = registry.get(MetricsExchangeFilter.RESPONSE_SIZE)
+        .tag("endpoint", "roster")
+        .summary();
+    assertThat(size.count()).isEqualTo(1);
+    assertThat(size.totalAmount()).isEqualTo(10);
+  }
+
+  @Test
+  void failedExchange_isTaggedAsClientError() {
+    ExchangeFunction upstream = request -> Mono.error(new IOException("connection reset"));
+
+    filter.filter(rosterRequest(), upstream)
+        .onErrorResume(e -> Mono.empty())
+        .block(Duration.ofSeconds(2));
+
+    var timer = registry.get(MetricsExchangeFilter.REQUESTS)
+        .tag("endpoint", "roster")
+        .tag("status", "CLIENT_ERROR")
+        .timer();
+    assertThat(timer.count()).isEqualTo(1);
+  }
+
+  @Test
+  void requestWithoutEndpoint_isRecordedAsOther() {
+    ExchangeFunction upstream = request ->
+        Mono.just(ClientResponse.create(HttpStatus.NOT_FOUND).build());
+
+    filter.filter(ClientRequest.create(HttpMethod.GET, ROSTER_URI).build(), upstream)
+        .block(Duration.ofSeconds(2));
+
+    assertThat(registry.get(MetricsExchangeFilter.REQUESTS)
+        .tag("endpoint", RequestAttributes.UNKNOWN_ENDPOINT)
+        .tag("status", "404")
+        .timer()
+        .count())
+        .isEqualTo(1);
+  }
+
+  private static ClientRequest rosterRequest() {
+    return ClientRequest.create(HttpMethod.GET, ROSTER_URI)
+        .attribute(RequestAttributes.ENDPOINT, "roster")
+        .build();
+  }
+}
@@ -0,0 +1,103 @@
+package dev.agaber.sports.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class RateLimitExchangeFilterTest {
+  private static final ExchangeFunction OK =
+      request -> Mono.just(ClientResponse.create(HttpStatus.OK).build());
+
+  @Test
+  void withinBurst_sentStraightAway() {
+    var filter = new RateLimitExchangeFilter(1, 3, Map.of());
+
+    for (var i = 0; i < 3; i++) {
+      filter.filter(request("venue"), OK).block(Duration.ofSeconds(1));
+    }
+
+    assertThat(filter.requests()).isEqualTo(3);
+    assertThat(filter.waitNanos()).isZero();
+  }
+
+  @Test
+  void overBurst_waitsForNextToken() {
+    var filter = new RateLimitExchangeFilter(10, 1, Map.of());
+    var sent = new AtomicInteger();
+    ExchangeFunction counting = request -> {
+      sent.incrementAndGet();
+      return OK.exchange(request);
+    };
+    filter.filter(request("venue"), counting).block(Duration.ofSeconds(1));
+
+    var start = System.nanoTime();
+    var second = filter.filter(request("venue"), counting).toFuture();
+    assertThat(filter.waiting()).isEqualTo(1);
+    assertThat(sent).hasValue(1);
+
+    second.join();
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThan(Duration.ofMillis(50));
+    assertThat(filter.waiting()).isZero();
+    assertThat(sent).hasValue(2);
+    assertThat(filter.waitNanos()).isPositive();
+  }
+
+  @Test
+  void endpointRate_onlySlowsThatEndpoint() {
+    var filter = new RateLimitExchangeFilter(1000, 100, Map.of("roster", 1.0));
+    filter.filter(request("roster"), OK).block(Duration.ofSeconds(1));
+
+    var roster = filter.filter(request("roster"), OK).subscribe();
+    assertThat(filter.waiting()).isEqualTo(1);
+    filter.filter(request("venue"), OK).block(Duration.ofSeconds(1));
+    assertThat(filter.waiting()).isEqualTo(1);
+
+    roster.dispose();
+  }
+
+  @Test
+  void cancelledWhileWaiting_givesTokenBack() {
+    var filter = new RateLimitExchangeFilter(1, 1, Map.of());
+    filter.filter(request("venue"), OK).block(Duration.ofSeconds(1));
+
+    filter.filter(request("venue"), OK).subscribe().dispose();
+    assertThat(filter.waiting()).isZero();
+    var waitedBefore = filter.waitNanos();
+
+    // Without the refund this one would queue behind the cancelled request, two seconds out.
+    var third = filter.filter(request("venue"), OK).subscribe();
+    assertThat(filter.waitNanos() - waitedBefore).isLessThanOrEqualTo(1e9);
+    third.dispose();
+  }
+
+  @Test
+  void throttled_dropsSavedUpBurst() {
+    var filter = new RateLimitExchangeFilter(10, 5, Map.of());
+    ExchangeFunction throttling =
+        request -> Mono.just(ClientResponse.create(HttpStatus.TOO_MANY_REQUESTS).build());
+
+    filter.filter(request("venue"), throttling).block(Duration.ofSeconds(1));
+    assertThat(filter.throttled()).isEqualTo(1);
+    assertThat(filter.waitNanos()).isZero();
+
+    filter.filter(request("venue"), OK).block(Duration.ofSeconds(1));
+    assertThat(filter.waitNanos()).isPositive();
+  }
+
+  private static ClientRequest request(String endpoint) {
+    return ClientRequest.create(HttpMethod.GET, URI.create("http://localhost/api/v1/" + endpoint))
+        .attribute(RequestAttributes.ENDPOINT, endpoint)
+        .build();
+  }
+}
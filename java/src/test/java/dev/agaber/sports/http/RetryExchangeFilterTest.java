@@ -0,0 +1,116 @@
+package dev.agaber.sports.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class RetryExchangeFilterTest {
+  private static final URI URL = URI.create("http://localhost/api/v1/venues/2395");
+  private static final ClientRequest REQUEST = ClientRequest.create(HttpMethod.GET, URL).build();
+
+  private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+  @Test
+  void transientFailure_isRetried() {
+    var filter = filter(new RequestBudget(10, 0, 10));
+
+    var response = filter.filter(REQUEST, upstream(HttpStatus.SERVICE_UNAVAILABLE, HttpStatus.OK))
+        .block(Duration.ofSeconds(1));
+
+    assertThat(response.statusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(upstreamCalls).hasValue(2);
+    assertThat(filter.retries()).isEqualTo(1);
+  }
+
+  @Test
+  void connectionFailure_isRetried() {
+    var filter = filter(new RequestBudget(10, 0, 10));
+    var attempts = new AtomicInteger();
+    ExchangeFunction refusedOnce = request -> attempts.getAndIncrement() == 0
+        ? Mono.error(new WebClientRequestException(
+            new IOException("Connection refused"), HttpMethod.GET, URL, request.headers()))
+        : Mono.just(ClientResponse.create(HttpStatus.OK).build());
+
+    var response = filter.filter(REQUEST, refusedOnce).block(Duration.ofSeconds(1));
+
+    assertThat(response.statusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(attempts).hasValue(2);
+  }
+
+  @Test
+  void persistentFailure_failsWithTheLastResponseAfterMaxAttempts() {
+    var filter = filter(new RequestBudget(10, 0, 10));
+
+    assertThatThrownBy(() -> filter.filter(REQUEST, upstream(HttpStatus.BAD_GATEWAY)).block())
+        .isInstanceOf(WebClientResponseException.class)
+        .extracting(e -> ((WebClientResponseException) e).getStatusCode())
+        .isEqualTo(HttpStatus.BAD_GATEWAY);
+    assertThat(upstreamCalls).hasValue(3);
+    assertThat(filter.exhausted()).isEqualTo(1);
+  }
+
+  @Test
+  void spentBudget_stopsRetries() {
+    var filter = filter(new RequestBudget(0, 0, 10));
+
+    assertThatThrownBy(() -> filter.filter(REQUEST, upstream(HttpStatus.BAD_GATEWAY)).block())
+        .isInstanceOf(WebClientResponseException.class);
+    assertThat(upstreamCalls).hasValue(1);
+    assertThat(filter.budget().denied()).isEqualTo(1);
+  }
+
+  @Test
+  void clientError_isPassedOnWithoutRetrying() {
+    var filter = filter(new RequestBudget(10, 0, 10));
+
+    var response = filter.filter(REQUEST, upstream(HttpStatus.NOT_FOUND))
+        .block(Duration.ofSeconds(1));
+
+    assertThat(response.statusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    assertThat(upstreamCalls).hasValue(1);
+  }
+
+  @Test
+  void openCircuitBreaker_isNotRetried() {
+    var filter = filter(new RequestBudget(10, 0, 10));
+    ExchangeFunction open = request -> {
+      upstreamCalls.incrementAndGet();
+      return Mono.error(new CircuitBreakerOpenException("venue"));
+    };
+
+    assertThatThrownBy(() -> filter.filter(REQUEST, open).block())
+        .isInstanceOf(CircuitBreakerOpenException.class);
+    assertThat(upstreamCalls).hasValue(1);
+  }
+
+  private static RetryExchangeFilter filter(RequestBudget budget) {
+    return new RetryExchangeFilter(3, Duration.ofMillis(1), Duration.ofMillis(10), 0.5, budget);
+  }
+
+  /** Answers with each status in turn, repeating the last one. */
+  private ExchangeFunction upstream(HttpStatus... statuses) {
+    Queue<HttpStatus> remaining = new ArrayDeque<>(List.of(statuses));
+    return request -> {
+      upstreamCalls.incrementAndGet();
+      var status = remaining.size() > 1 ? remaining.remove() : remaining.peek();
+      return Mono.just(ClientResponse.create(status).build());
+    };
+  }
+}
@@ -0,0 +1,214 @@
+package dev.agaber.sports.testing;
+
+import com.google.common.collect.ImmutableMap;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import lombok.Builder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local stand-in for statsapi that serves the Giants fixtures with injected latency and errors.
+ *
+ * <p>Unlike the WireMock stubs in the unit tests, responses are delayed without holding a thread,
+ * so one stub can keep thousands of slow requests in flight while a load test runs against it.
+ */
+public final class StatsApiStub implements AutoCloseable {
+  private static final ImmutableMap<String, String> FIXTURES = ImmutableMap.of(
+      "/api/v1/teams", "teams-allmlb.json",
+      "/api/v1/teams/137", "team-137.json",
+      "/api/v1/teams/137/roster", "team-137-roster.json",
+      "/api/v1/venues/2395", "venue-2395.json");
+  private static final ImmutableMap<String, String> HYDRATED_FIXTURES = ImmutableMap.of(
+      "/api/v1/teams/137", "team-137-hydrated.json");
+
+  private final ImmutableMap<String, byte[]> bodies;
+  private final ImmutableMap<String, byte[]> hydratedBodies;
+  private final Options options;
+  private final Map<String, AtomicLong> requestCounts = new ConcurrentHashMap<>();
+  private final AtomicLong errors = new AtomicLong();
+  private final AtomicLong connections = new AtomicLong();
+  private final DisposableServer server;
+
+  private StatsApiStub(Options options) {
+    this.options = options;
+    this.bodies = read(FIXTURES);
+    this.hydratedBodies = read(HYDRATED_FIXTURES);
+    var protocols = options.protocols() == null || options.protocols().isEmpty()
+        ? Set.of(HttpProtocol.HTTP11)
+        : options.protocols();
+    this.server = HttpServer.create()
+        .port(options.port())
+        .protocol(protocols.toArray(HttpProtocol[]::new))
+        // Enough streams that HTTP/2 clients are limited by their own settings, not the stub's.
+        .http2Settings(settings -> settings.maxConcurrentStreams(10_000))
+        .doOnChannelInit((observer, channel, address) -> connections.incrementAndGet())
+        .handle(this::handle)
+        .bindNow();
+  }
+
+  /** Starts a stub on {@link Options#port()}, or on any free port if that is zero. */
+  public static StatsApiStub start(Options options) {
+    return new StatsApiStub(options);
+  }
+
+  public String baseUrl() {
+    return "http://localhost:" + server.port();
+  }
+
+  /** Requests received for {@code path}, whatever their outcome. */
+  public long requests(String path) {
+    var count = requestCounts.get(path);
+    return count == null ? 0 : count.get();
+  }
+
+  /** TCP connections accepted. Over HTTP/2 many requests share one. */
+  public long connections() {
+    return connections.get();
+  }
+
+  /** Requests answered with an injected error. */
+  public long errors() {
+    return errors.get();
+  }
+
+  @Override
+  public void close() {
+    server.disposeNow();
+  }
+
+  private Mono<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+    var uri = new QueryStringDecoder(request.uri());
+    var path = uri.path();
+    requestCounts.computeIfAbsent(path, key -> new AtomicLong()).incrementAndGet();
+    var latency = options.latencyByPath() == null
+        ? options.latency()
+        : options.latencyByPath().getOrDefault(path, options.latency());
+    var delay = latency == null ? Duration.ZERO : latency.next();
+    return Mono.delay(delay).then(Mono.defer(() -> {
+      if (ThreadLocalRandom.current().nextDouble() < options.errorRate()) {
+        errors.incrementAndGet();
+        return response.status(HttpResponseStatus.SERVICE_UNAVAILABLE).send();
+      }
+      // Like statsapi, a path without a hydrated fixture ignores the hydrate parameter.
+      var body = uri.parameters().containsKey("hydrate")
+          ? hydratedBodies.getOrDefault(path, bodies.get(path))
+          : bodies.get(path);
+      if (body == null) {
+        return response.status(HttpResponseStatus.NOT_FOUND).send();
+      }
+      return response
+          .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+          .sendByteArray(Mono.just(body))
+          .then();
+    }));
+  }
+
+  private static ImmutableMap<String, byte[]> read(ImmutableMap<String, String> fixtures) {
+    return fixtures.entrySet().stream()
+        .collect(ImmutableMap.toImmutableMap(Map.Entry::getKey, e -> read(e.getValue())));
+  }
+
+  private static byte[] read(String fixture) {
+    var path = "dev/agaber/sports/baseball/" + fixture;
+    try (var in = StatsApiStub.class.getClassLoader().getResourceAsStream(path)) {
+      return in.readAllBytes();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @param latency delay before every response, unless overridden for its path
+   * @param latencyByPath delays for specific request paths, e.g. {@code /api/v1/venues/2395}
+   * @param errorRate fraction of requests, from 0 to 1, answered with a 503
+   * @param port port to listen on, or zero for any free port
+   * @param protocols protocols to accept, e.g. {@code HTTP11} and {@code H2C} for both, or only
+   *     {@code HTTP11} if empty
+   */
+  @Builder(toBuilder = true)
+  public record Options(
+      LatencyDistribution latency,
+      Map<String, LatencyDistribution> latencyByPath,
+      double errorRate,
+      int port,
+      Set<HttpProtocol> protocols) {
+  }
+
+  /** Where each response's delay is drawn from. */
+  @FunctionalInterface
+  public interface LatencyDistribution {
+    Duration next();
+
+    static LatencyDistribution fixed(Duration latency) {
+      return () -> latency;
+    }
+
+    static LatencyDistribution uniform(Duration min, Duration max) {
+      return () -> Duration.ofNanos(
+          ThreadLocalRandom.current().nextLong(min.toNanos(), max.toNanos() + 1));
+    }
+
+    /**
+     * Long-tailed like most real services: half the responses are faster than {@code median} and
+     * one in a hundred is slower than {@code p99}.
+     */
+    static LatencyDistribution logNormal(Duration median, Duration p99) {
+      var mu = Math.log(median.toNanos());
+      // 2.326 is the standard normal's 99th percentile.
+      var sigma = Math.log((double) p99.toNanos() / median.toNanos()) / 2.326;
+      return () -> {
+        var gaussian = ThreadLocalRandom.current().nextGaussian();
+        return Duration.ofNanos((long) Math.exp(mu + sigma * gaussian));
+      };
+    }
+
+    /** Usually {@code fast}, but {@code slow} for a {@code slowFraction} of the responses. */
+    static LatencyDistribution bimodal(
+        LatencyDistribution fast,
+        LatencyDistribution slow,
+        double slowFraction) {
+      return () -> ThreadLocalRandom.current().nextDouble() < slowFraction
+          ? slow.next()
+          : fast.next();
+    }
+
+    /**
+     * Parses {@code fixed:20ms}, {@code uniform:5ms:50ms}, {@code lognormal:20ms:200ms} and
+     * {@code bimodal:10ms:500ms:0.05}, for setting up a stub from the command line.
+     */
+    static LatencyDistribution parse(String spec) {
+      var parts = spec.split(":");
+      return switch (parts[0]) {
+        case "fixed" -> fixed(duration(parts[1]));
+        case "uniform" -> uniform(duration(parts[1]), duration(parts[2]));
+        case "lognormal" -> logNormal(duration(parts[1]), duration(parts[2]));
+        case "bimodal" -> bimodal(
+            fixed(duration(parts[1])),
+            fixed(duration(parts[2])),
+            Double.parseDouble(parts[3]));
+        default -> throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+      };
+    }
+
+    private static Duration duration(String value) {
+      return DurationStyle.detectAndParse(value);
+    }
+  }
+}